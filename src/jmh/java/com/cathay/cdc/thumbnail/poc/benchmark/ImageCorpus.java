@@ -0,0 +1,94 @@
+package com.cathay.cdc.thumbnail.poc.benchmark;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic inputs for the image benchmarks.
+ * <p>
+ * "photo" images are smooth gradients with per-pixel noise, which compress like camera
+ * output; "graphic" images are flat shapes and text, which compress like screenshots/logos.
+ */
+final class ImageCorpus {
+
+    private ImageCorpus() {
+    }
+
+    static int[] parseResolution(String resolution) {
+        String[] parts = resolution.split("x");
+        return new int[]{Integer.parseInt(parts[0]), Integer.parseInt(parts[1])};
+    }
+
+    static BufferedImage generate(String kind, String resolution, boolean alpha) {
+        int[] size = parseResolution(resolution);
+        int width = size[0];
+        int height = size[1];
+        BufferedImage image = new BufferedImage(width, height,
+                alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            if ("graphic".equals(kind)) {
+                drawGraphic(g, width, height);
+            } else {
+                drawPhoto(image, g, width, height);
+            }
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    static byte[] encode(BufferedImage image, String format) {
+        try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
+            if (!ImageIO.write(image, format, os)) {
+                throw new IllegalArgumentException("No ImageIO writer for " + format);
+            }
+            return os.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void drawPhoto(BufferedImage image, Graphics2D g, int width, int height) {
+        g.setPaint(new GradientPaint(0, 0, new Color(30, 90, 160), width, height, new Color(220, 170, 80)));
+        g.fillRect(0, 0, width, height);
+        Random random = new Random(42);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int rgb = image.getRGB(x, y);
+                int noise = random.nextInt(25) - 12;
+                int r = clamp(((rgb >> 16) & 0xff) + noise);
+                int gr = clamp(((rgb >> 8) & 0xff) + noise);
+                int b = clamp((rgb & 0xff) + noise);
+                image.setRGB(x, y, (rgb & 0xff000000) | (r << 16) | (gr << 8) | b);
+            }
+        }
+    }
+
+    private static void drawGraphic(Graphics2D g, int width, int height) {
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, width, height);
+        Random random = new Random(7);
+        for (int i = 0; i < 40; i++) {
+            g.setColor(new Color(random.nextInt(0xffffff)));
+            g.fillRect(random.nextInt(width), random.nextInt(height), width / 6, height / 6);
+        }
+        g.setColor(Color.BLACK);
+        g.setFont(new Font(Font.SANS_SERIF, Font.BOLD, Math.max(12, height / 12)));
+        g.drawString("thumbnail benchmark", width / 10, height / 2);
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+}
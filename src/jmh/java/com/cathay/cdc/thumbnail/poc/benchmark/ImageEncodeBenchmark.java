@@ -0,0 +1,86 @@
+package com.cathay.cdc.thumbnail.poc.benchmark;
+
+import com.cathay.cdc.thumbnail.poc.service.ImageEncoder;
+import org.imgscalr.Scalr;
+import org.openjdk.jmh.annotations.*;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thumbnail encode cost and output size per format and compression quality, and of the
+ * {@link ImageEncoder} choosing the format itself.
+ * {@link OutputSize#bytes} is reported next to the timing as an auxiliary counter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ImageEncodeBenchmark {
+
+    @Param({"jpg", "png", "gif"})
+    public String format;
+
+    @Param({"0.5", "0.75", "0.9"})
+    public float quality;
+
+    @Param({"photo", "graphic"})
+    public String kind;
+
+    private BufferedImage thumbnail;
+    private final ImageEncoder imageEncoder = new ImageEncoder();
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class OutputSize {
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        thumbnail = Scalr.resize(ImageCorpus.generate(kind, "1280x720", false), Scalr.Method.QUALITY, 150);
+    }
+
+    @Benchmark
+    public byte[] encode(OutputSize outputSize) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        try (ByteArrayOutputStream os = new ByteArrayOutputStream();
+             ImageOutputStream ios = ImageIO.createImageOutputStream(os)) {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (param.canWriteCompressed()) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                if (param.getCompressionType() == null && param.getCompressionTypes() != null) {
+                    param.setCompressionType(param.getCompressionTypes()[0]);
+                }
+                param.setCompressionQuality(quality);
+            }
+            writer.write(null, new IIOImage(thumbnail, null, null), param);
+            ios.flush();
+            byte[] out = os.toByteArray();
+            outputSize.bytes += out.length;
+            return out;
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    @Benchmark
+    public byte[] adaptive(OutputSize outputSize) throws IOException {
+        String chosen = imageEncoder.chooseFormat(thumbnail, ImageEncoder.AUTO, format, ImageEncoder.UNIVERSAL);
+        byte[] out = imageEncoder.encode(thumbnail, chosen, quality);
+        outputSize.bytes += out.length;
+        return out;
+    }
+}
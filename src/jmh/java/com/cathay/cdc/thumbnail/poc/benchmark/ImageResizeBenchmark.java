@@ -0,0 +1,37 @@
+package com.cathay.cdc.thumbnail.poc.benchmark;
+
+import org.imgscalr.Scalr;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code Scalr.resize} cost per method for an already decoded source.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ImageResizeBenchmark {
+
+    @Param({"SPEED", "BALANCED", "QUALITY", "ULTRA_QUALITY"})
+    public Scalr.Method method;
+
+    @Param({"1280x720", "4000x3000"})
+    public String resolution;
+
+    @Param({"150", "400"})
+    public int targetSize;
+
+    private BufferedImage source;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        source = ImageCorpus.generate("photo", resolution, false);
+    }
+
+    @Benchmark
+    public BufferedImage resize() {
+        return Scalr.resize(source, method, targetSize);
+    }
+}
@@ -0,0 +1,61 @@
+package com.cathay.cdc.thumbnail.poc.benchmark;
+
+import com.cathay.cdc.thumbnail.poc.configuration.JwtPrincipal;
+import com.cathay.cdc.thumbnail.poc.configuration.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.Key;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request token work of {@code JwtAuthenticationFilter}.
+ * <ul>
+ *     <li>{@code legacy}: validate, extract subject, extract roles, each with a freshly built
+ *     parser and its own signature check (what the filter used to do)</li>
+ *     <li>{@code singleParse}: one check with the shared parser, i.e. a cache miss</li>
+ *     <li>{@code cached}: {@link JwtUtil#verify} for a token seen before</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtFilterBenchmark {
+
+    private static final String SECRET = "benchmark-secret-benchmark-secret-0123456789";
+
+    private JwtUtil jwtUtil;
+    private Key key;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        jwtUtil = new JwtUtil(SECRET, 3_600_000, 10_000);
+        key = Keys.hmacShaKeyFor(SECRET.getBytes());
+        token = jwtUtil.generateToken("alice", List.of("ROLE_USER", "ROLE_ADMIN"));
+        jwtUtil.verify(token);
+    }
+
+    @Benchmark
+    public Object legacy() {
+        Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token);
+        String subject = Jwts.parserBuilder().setSigningKey(key).build()
+                .parseClaimsJws(token).getBody().getSubject();
+        Claims claims = Jwts.parserBuilder().setSigningKey(key).build()
+                .parseClaimsJws(token).getBody();
+        return new Object[]{subject, claims.get("roles")};
+    }
+
+    @Benchmark
+    public JwtPrincipal singleParse() {
+        return jwtUtil.parse(token).orElseThrow();
+    }
+
+    @Benchmark
+    public JwtPrincipal cached() {
+        return jwtUtil.verify(token).orElseThrow();
+    }
+}
@@ -0,0 +1,45 @@
+package com.cathay.cdc.thumbnail.poc.benchmark;
+
+import com.cathay.cdc.thumbnail.poc.configuration.ThumbnailProperties;
+import com.cathay.cdc.thumbnail.poc.service.ImageEncoder;
+import com.cathay.cdc.thumbnail.poc.service.ThumbnailRenderer;
+import io.micrometer.observation.ObservationRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end cost of one job item as {@code ThumbnailService} runs it: decode the original,
+ * then render every configured rendition with {@link ThumbnailRenderer}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ThumbnailRenderBenchmark {
+
+    @Param({"jpg", "png"})
+    public String format;
+
+    @Param({"1280x720", "4000x3000"})
+    public String resolution;
+
+    private byte[] encoded;
+    private ThumbnailRenderer renderer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        encoded = ImageCorpus.encode(ImageCorpus.generate("photo", resolution, false), format);
+        renderer = new ThumbnailRenderer(new ThumbnailProperties(), new ImageEncoder(), ObservationRegistry.NOOP);
+    }
+
+    @Benchmark
+    public List<ThumbnailRenderer.Output> decodeAndRender() throws IOException {
+        BufferedImage original = ImageIO.read(new ByteArrayInputStream(encoded));
+        return renderer.render(original, format);
+    }
+}
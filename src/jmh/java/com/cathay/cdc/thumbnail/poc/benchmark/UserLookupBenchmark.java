@@ -0,0 +1,169 @@
+package com.cathay.cdc.thumbnail.poc.benchmark;
+
+import com.cathay.cdc.thumbnail.poc.dto.UserPage;
+import com.cathay.cdc.thumbnail.poc.entity.Role;
+import com.cathay.cdc.thumbnail.poc.entity.User;
+import com.cathay.cdc.thumbnail.poc.repository.UserRepository;
+import com.cathay.cdc.thumbnail.poc.service.SecurityUserDetailsService;
+import com.cathay.cdc.thumbnail.poc.service.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Login and admin-listing cost before and after the projection read model.
+ * <p>
+ * This is an arithmetic model, not a database benchmark: the repository is a {@link Proxy} stub
+ * that parks for {@code roundTripMicros} per query it stands in for, so the results are query
+ * count times round trip plus the in-process work (mapping, cache, BCrypt). It says nothing about
+ * query plans, join cost or row transfer; those need a real database.
+ * <ul>
+ *     <li>{@code loginEager}: entity lookup plus the EAGER roles select, then BCrypt</li>
+ *     <li>{@code loginCached}: {@link SecurityUserDetailsService} on a warm account cache, then BCrypt</li>
+ *     <li>{@code loginUncached}: one join query, then BCrypt</li>
+ *     <li>{@code listAllEntities}: {@code findAll} plus one roles select per user (N+1)</li>
+ *     <li>{@code listPage}: one page of projections, the page's count query and one roles query</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UserLookupBenchmark {
+
+    private static final String PASSWORD = "benchmark-password";
+
+    @Param({"0", "500"})
+    public long roundTripMicros;
+
+    @Param({"4", "10"})
+    public int bcryptStrength;
+
+    @Param({"200"})
+    public int users;
+
+    private PasswordEncoder encoder;
+    private String hash;
+    private UserRepository repository;
+    private SecurityUserDetailsService cachedDetails;
+    private UserService uncachedService;
+    private UserService listingService;
+
+    record AccountRow(Long getId, String getUsername, String getPassword, boolean isEnabled, String getRole)
+            implements UserRepository.AccountRow {
+    }
+
+    record SummaryRow(Long getId, String getUsername, boolean isEnabled, LocalDateTime getCreatedAt)
+            implements UserRepository.SummaryRow {
+    }
+
+    record RoleRow(Long getUserId, String getRole) implements UserRepository.RoleRow {
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        encoder = new BCryptPasswordEncoder(bcryptStrength);
+        hash = encoder.encode(PASSWORD);
+        repository = stubRepository();
+        cachedDetails = new SecurityUserDetailsService(new UserService(repository, Duration.ofMinutes(5), 1000, 200));
+        cachedDetails.loadUserByUsername("user-1");
+        uncachedService = new UserService(repository, Duration.ofMinutes(5), 0, 200);
+        listingService = new UserService(repository, Duration.ofMinutes(5), 1000, 200);
+    }
+
+    @Benchmark
+    public boolean loginEager() {
+        User user = repository.findByUsername("user-1").orElseThrow();
+        roundTrip(); // EAGER @ManyToMany: roles come from a second select
+        return encoder.matches(PASSWORD, user.getPassword()) && !user.getRoles().isEmpty();
+    }
+
+    @Benchmark
+    public boolean loginCached() {
+        UserDetails details = cachedDetails.loadUserByUsername("user-1");
+        return encoder.matches(PASSWORD, details.getPassword());
+    }
+
+    @Benchmark
+    public boolean loginUncached() {
+        return encoder.matches(PASSWORD, uncachedService.findAccount("user-1").orElseThrow().passwordHash());
+    }
+
+    @Benchmark
+    public int listAllEntities() {
+        List<User> all = repository.findAll();
+        int roles = 0;
+        for (User user : all) {
+            roundTrip();
+            roles += user.getRoles().size();
+        }
+        return roles;
+    }
+
+    @Benchmark
+    public UserPage listPage() {
+        return listingService.listUsers(0, 50);
+    }
+
+    private void roundTrip() {
+        if (roundTripMicros > 0) {
+            LockSupport.parkNanos(roundTripMicros * 1000);
+        }
+    }
+
+    private User user(long id) {
+        Role role = new Role();
+        role.setId(1L);
+        role.setName("ROLE_USER");
+        User user = new User();
+        user.setId(id);
+        user.setUsername("user-" + id);
+        user.setPassword(hash);
+        user.getRoles().add(role);
+        return user;
+    }
+
+    private UserRepository stubRepository() {
+        return (UserRepository) Proxy.newProxyInstance(UserRepository.class.getClassLoader(),
+                new Class<?>[]{UserRepository.class}, (proxy, method, args) -> {
+                    roundTrip();
+                    return switch (method.getName()) {
+                        case "findByUsername" -> Optional.of(user(1));
+                        case "findAll" -> {
+                            List<User> all = new ArrayList<>(users);
+                            for (long id = 1; id <= users; id++) {
+                                all.add(user(id));
+                            }
+                            yield all;
+                        }
+                        case "findAccountRows" -> List.of(new AccountRow(1L, (String) args[0], hash, true, "ROLE_USER"));
+                        case "findSummaries" -> {
+                            roundTrip(); // Spring Data runs a separate count query for the Page
+                            Pageable pageable = (Pageable) args[0];
+                            List<UserRepository.SummaryRow> rows = new ArrayList<>();
+                            for (long id = pageable.getOffset() + 1; id <= Math.min(users, pageable.getOffset() + pageable.getPageSize()); id++) {
+                                rows.add(new SummaryRow(id, "user-" + id, true, null));
+                            }
+                            yield new PageImpl<>(rows, pageable, users);
+                        }
+                        case "findRoleRows" -> {
+                            List<UserRepository.RoleRow> rows = new ArrayList<>();
+                            for (Object id : (Collection<?>) args[0]) {
+                                rows.add(new RoleRow((Long) id, "ROLE_USER"));
+                            }
+                            yield rows;
+                        }
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    };
+                });
+    }
+}
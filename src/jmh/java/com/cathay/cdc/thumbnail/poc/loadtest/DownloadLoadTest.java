@@ -0,0 +1,181 @@
+package com.cathay.cdc.thumbnail.poc.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Closed-loop load test of {@code GET /api/files/download/{name}} against a running instance.
+ * <p>
+ * Meant for the offline profile, where the local blob store stands in for GCS and
+ * {@code blobstore.local.latency} sets the simulated storage round trip:
+ * <pre>
+ * java -jar app.jar --spring.profiles.active=local,offline --blobstore.local.latency=20ms \
+ *      --spring.threads.virtual.enabled=false   # then again with true
+ * ./gradlew loadTest -Dloadtest.concurrency=400 -Dloadtest.label=platform
+ * </pre>
+ * Every client is a virtual thread issuing requests back to back, so the client side never
+ * limits concurrency; the difference between runs is the server's threading. Latencies after
+ * the warm-up are reported as throughput and percentiles.
+ * <p>
+ * Options ({@code -Dloadtest.*}): {@code base-url}, {@code username}, {@code password},
+ * {@code concurrency}, {@code duration}, {@code warmup} (ISO-8601 or e.g. {@code 30s}),
+ * {@code object-size} (bytes of the seeded object), {@code label}.
+ */
+public final class DownloadLoadTest {
+
+    private static final Pattern TOKEN = Pattern.compile("\"token\"\\s*:\\s*\"([^\"]+)\"");
+
+    private final String baseUrl = option("base-url", "http://localhost:8099");
+    private final int concurrency = Integer.parseInt(option("concurrency", "256"));
+    private final Duration duration = duration(option("duration", "30s"));
+    private final Duration warmup = duration(option("warmup", "5s"));
+    private final int objectSize = Integer.parseInt(option("object-size", "65536"));
+    private final String label = option("label", "run");
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    public static void main(String[] args) throws Exception {
+        new DownloadLoadTest().run();
+    }
+
+    private void run() throws Exception {
+        String token = login(option("username", "admin"), option("password", "admin"));
+        String object = seed(token);
+        System.out.printf("[%s] %d clients, %s warm-up, %s measured, object %s (%d bytes)%n",
+                label, concurrency, warmup, duration, object, objectSize);
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/files/download/" + object + "?redirect=false"))
+                .header("Authorization", "Bearer " + token)
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        AtomicLong errors = new AtomicLong();
+
+        List<Future<long[]>> clients = new ArrayList<>(concurrency);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                clients.add(executor.submit(() -> loop(request, measureFrom, end, errors)));
+            }
+        }
+
+        long[] latencies = clients.stream().map(DownloadLoadTest::join).flatMapToLong(Arrays::stream).sorted().toArray();
+        double seconds = duration.toNanos() / 1e9;
+        System.out.printf("[%s] requests=%d errors=%d throughput=%.1f req/s%n",
+                label, latencies.length, errors.get(), latencies.length / seconds);
+        System.out.printf("[%s] latency ms: p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f max=%.1f%n", label,
+                percentile(latencies, 50), percentile(latencies, 90), percentile(latencies, 99),
+                percentile(latencies, 99.9), latencies.length == 0 ? 0 : latencies[latencies.length - 1] / 1e6);
+    }
+
+    /** Requests back to back until {@code end}; returns the latencies measured after {@code measureFrom}. */
+    private long[] loop(HttpRequest request, long measureFrom, long end, AtomicLong errors) {
+        long[] latencies = new long[1024];
+        int count = 0;
+        while (true) {
+            long sent = System.nanoTime();
+            if (sent >= end) {
+                break;
+            }
+            boolean ok;
+            try {
+                ok = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+            } catch (Exception e) {
+                ok = false;
+            }
+            long done = System.nanoTime();
+            if (sent < measureFrom || done > end) {
+                continue;
+            }
+            if (!ok) {
+                errors.incrementAndGet();
+                continue;
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = done - sent;
+        }
+        return Arrays.copyOf(latencies, count);
+    }
+
+    private String login(String username, String password) throws Exception {
+        String body = "{\"username\":\"" + username + "\",\"password\":\"" + password + "\"}";
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        Matcher matcher = TOKEN.matcher(response.body());
+        if (response.statusCode() != 200 || !matcher.find()) {
+            throw new IllegalStateException("Login failed: " + response.statusCode() + " " + response.body());
+        }
+        return matcher.group(1);
+    }
+
+    /** Uploads one random object of {@code object-size} bytes and returns its name. */
+    private String seed(String token) throws Exception {
+        String name = "loadtest-" + objectSize + ".bin";
+        byte[] content = new byte[objectSize];
+        new Random(42).nextBytes(content);
+        String boundary = "loadtest" + System.nanoTime();
+        byte[] head = ("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"files\"; filename=\"" + name + "\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.UTF_8);
+        byte[] tail = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/files/upload"))
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArrays(List.of(head, content, tail)))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Seeding failed: " + response.statusCode() + " " + response.body());
+        }
+        return name;
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6;
+    }
+
+    private static long[] join(Future<long[]> future) {
+        try {
+            return future.get();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String option(String name, String defaultValue) {
+        return System.getProperty("loadtest." + name, defaultValue);
+    }
+
+    private static Duration duration(String value) {
+        return value.startsWith("P") || value.startsWith("p")
+                ? Duration.parse(value)
+                : Duration.parse("PT" + value.toUpperCase());
+    }
+}
@@ -1,6 +1,12 @@
 package com.cathay.cdc.thumbnail.poc.configuration;
 
+import com.cathay.cdc.thumbnail.poc.service.FileListingCache;
+import com.cathay.cdc.thumbnail.poc.service.FileUrlService;
+import com.cathay.cdc.thumbnail.poc.service.OnDemandThumbnailService;
+import com.cathay.cdc.thumbnail.poc.service.UserService;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
@@ -14,12 +20,47 @@ import java.util.concurrent.TimeUnit;
 public class CacheConfig {
     @Bean
     public CacheManager cacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager("listFilesCache");
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
         cacheManager.setCaffeine(
                 Caffeine.newBuilder()
                         .expireAfterWrite(10, TimeUnit.MINUTES)
                         .maximumSize(500)
+                        .recordStats() // published as cache.* metrics by actuator
         );
         return cacheManager;
     }
+
+    /**
+     * Hit/miss/load-time stats of the listing cache, which lives outside the CacheManager so it
+     * can apply deltas and refresh asynchronously. Shows up as {@code cache.gets},
+     * {@code cache.load.duration} etc. with {@code cache=listFilesCache}.
+     */
+    @Bean
+    public MeterBinder listFilesCacheMetrics(FileListingCache fileListingCache) {
+        return registry -> CaffeineCacheMetrics.monitor(registry, fileListingCache.nativeCache(), FileListingCache.CACHE_NAME);
+    }
+
+    /** In-memory tier of on-demand thumbnails. */
+    @Bean
+    public MeterBinder onDemandThumbnailCacheMetrics(OnDemandThumbnailService onDemandThumbnailService) {
+        return registry -> CaffeineCacheMetrics.monitor(registry, onDemandThumbnailService.nativeCache(), "onDemandThumbnails");
+    }
+
+    /** Signed URL reuse; a miss is one signing call (a round trip to IAM on Cloud Run). */
+    @Bean
+    public MeterBinder signedUrlCacheMetrics(FileUrlService fileUrlService) {
+        return registry -> CaffeineCacheMetrics.monitor(registry, fileUrlService.nativeCache(), FileUrlService.CACHE_NAME);
+    }
+
+    /** Verified JWTs; a miss is a full signature check. */
+    @Bean
+    public MeterBinder jwtVerifiedTokenCacheMetrics(JwtUtil jwtUtil) {
+        return registry -> CaffeineCacheMetrics.monitor(registry, jwtUtil.nativeCache(), "jwtVerifiedTokens");
+    }
+
+    /** User accounts on the login path; a miss is one join query. */
+    @Bean
+    public MeterBinder userAccountCacheMetrics(UserService userService) {
+        return registry -> CaffeineCacheMetrics.monitor(registry, userService.nativeCache(), UserService.CACHE_NAME);
+    }
 }
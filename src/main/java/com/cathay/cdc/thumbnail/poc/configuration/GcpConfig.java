@@ -1,14 +1,120 @@
 package com.cathay.cdc.thumbnail.poc.configuration;
 
+import com.google.api.client.http.apache.v2.ApacheHttpTransport;
+import com.google.api.gax.retrying.RetrySettings;
+import com.google.auth.oauth2.ServiceAccountCredentials;
+import com.google.cloud.http.HttpTransportOptions;
 import com.google.cloud.storage.Storage;
 import com.google.cloud.storage.StorageOptions;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
 
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the one {@link Storage} client shared by every service, with explicit pool sizing,
+ * timeouts, retry policy and transport selection. For the JSON transport each HTTP request is
+ * timed into {@code gcs.client.requests} and the connection pool is exposed as gauges.
+ */
+@Slf4j
 @Configuration
+@RequiredArgsConstructor
 public class GcpConfig {
+
+    private static final String REQUEST_START = GcpConfig.class.getName() + ".start";
+    private static final String REQUEST_METHOD = GcpConfig.class.getName() + ".method";
+
+    private final StorageClientProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${gcp.project-id}")
+    private String projectId;
+
+    @Value("${gcp.credentials.path}")
+    private Resource credentialsResource;
+
     @Bean
-    public Storage storage() {
-        return StorageOptions.getDefaultInstance().getService();
+    @ConditionalOnProperty(name = "blobstore.type", havingValue = "gcs", matchIfMissing = true)
+    public Storage storage() throws IOException {
+        StorageClientProperties.Retry retry = properties.getRetry();
+        RetrySettings retrySettings = RetrySettings.newBuilder()
+                .setMaxAttempts(retry.getMaxAttempts())
+                .setInitialRetryDelay(org.threeten.bp.Duration.ofMillis(retry.getInitialDelay().toMillis()))
+                .setMaxRetryDelay(org.threeten.bp.Duration.ofMillis(retry.getMaxDelay().toMillis()))
+                .setRetryDelayMultiplier(retry.getMultiplier())
+                .setTotalTimeout(org.threeten.bp.Duration.ofMillis(retry.getTotalTimeout().toMillis()))
+                .build();
+
+        StorageOptions.Builder builder = properties.getTransport() == StorageClientProperties.Transport.GRPC
+                ? StorageOptions.grpc()
+                : StorageOptions.http().setTransportOptions(httpTransportOptions());
+
+        log.info("Initializing shared GCP Storage client for project: {} (transport={}, maxConnections={}, retries={})",
+                projectId, properties.getTransport(), properties.getMaxConnections(), retry.getMaxAttempts());
+        return builder
+                .setProjectId(projectId)
+                .setCredentials(ServiceAccountCredentials.fromStream(credentialsResource.getInputStream()))
+                .setRetrySettings(retrySettings)
+                .build()
+                .getService();
+    }
+
+    private HttpTransportOptions httpTransportOptions() {
+        PoolingHttpClientConnectionManager pool = new PoolingHttpClientConnectionManager(
+                properties.getConnectionTimeToLive().toMillis(), TimeUnit.MILLISECONDS);
+        pool.setMaxTotal(properties.getMaxConnections());
+        pool.setDefaultMaxPerRoute(properties.getMaxConnectionsPerRoute());
+
+        Gauge.builder("gcs.client.pool.leased", pool, p -> p.getTotalStats().getLeased()).register(meterRegistry);
+        Gauge.builder("gcs.client.pool.available", pool, p -> p.getTotalStats().getAvailable()).register(meterRegistry);
+        Gauge.builder("gcs.client.pool.pending", pool, p -> p.getTotalStats().getPending()).register(meterRegistry);
+
+        HttpRequestInterceptor start = (request, context) -> {
+            context.setAttribute(REQUEST_METHOD, request.getRequestLine().getMethod());
+            context.setAttribute(REQUEST_START, System.nanoTime());
+        };
+        HttpResponseInterceptor finish = (response, context) -> {
+            Object startedAt = context.getAttribute(REQUEST_START);
+            if (startedAt instanceof Long nanos) {
+                Timer.builder("gcs.client.requests")
+                        .description("Storage HTTP requests")
+                        .tag("method", String.valueOf(context.getAttribute(REQUEST_METHOD)))
+                        .tag("status", String.valueOf(response.getStatusLine().getStatusCode()))
+                        .register(meterRegistry)
+                        .record(System.nanoTime() - nanos, TimeUnit.NANOSECONDS);
+            }
+        };
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout((int) properties.getConnectTimeout().toMillis())
+                .setSocketTimeout((int) properties.getReadTimeout().toMillis())
+                .setConnectionRequestTimeout((int) properties.getConnectTimeout().toMillis())
+                .build();
+
+        ApacheHttpTransport transport = new ApacheHttpTransport(ApacheHttpTransport.newDefaultHttpClientBuilder()
+                .setConnectionManager(pool)
+                .setDefaultRequestConfig(requestConfig)
+                .addInterceptorFirst(start)
+                .addInterceptorLast(finish)
+                .build());
+
+        return HttpTransportOptions.newBuilder()
+                .setHttpTransportFactory(() -> transport)
+                .setConnectTimeout((int) properties.getConnectTimeout().toMillis())
+                .setReadTimeout((int) properties.getReadTimeout().toMillis())
+                .build();
     }
 }
@@ -16,7 +16,7 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Optional;
 
 @Slf4j
 @RequiredArgsConstructor
@@ -41,13 +41,15 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         log.debug("🔎 Extracted JWT: {}", token);
 
         try {
-            if (jwtUtil.validateToken(token)) {
-                String username = jwtUtil.extractUsername(token);
-                List<String> roles = jwtUtil.extractRoles(token);
-                log.info("✅ JWT validated for user={} with roles={}", username, roles);
+            // one verification per token lifetime; repeat requests are served from the cache
+            Optional<JwtPrincipal> principal = jwtUtil.verify(token);
+            if (principal.isPresent()) {
+                String username = principal.get().subject();
+                List<String> roles = principal.get().roles();
+                log.debug("✅ JWT validated for user={} with roles={}", username, roles);
                 var authorities = roles.stream()
                         .map(SimpleGrantedAuthority::new)
-                        .collect(Collectors.toList());
+                        .toList();
 
                 UsernamePasswordAuthenticationToken authentication =
                         new UsernamePasswordAuthenticationToken(username, null, authorities);
@@ -0,0 +1,19 @@
+package com.cathay.cdc.thumbnail.poc.configuration;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * What a verified JWT says about its bearer. Immutable, so one instance can be shared by every
+ * request carrying the same token.
+ */
+public record JwtPrincipal(String subject, List<String> roles, Instant expiresAt) {
+
+    public JwtPrincipal {
+        roles = roles == null ? List.of() : List.copyOf(roles);
+    }
+
+    public boolean isExpired(Instant now) {
+        return expiresAt != null && !now.isBefore(expiresAt);
+    }
+}
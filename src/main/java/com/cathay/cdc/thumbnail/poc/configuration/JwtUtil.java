@@ -1,27 +1,53 @@
 package com.cathay.cdc.thumbnail.poc.configuration;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Component
 public class JwtUtil {
+    /** Tokens without {@code exp} are re-verified at least this often. */
+    private static final Duration NO_EXPIRY_FALLBACK = Duration.ofMinutes(5);
+
     private final Key signingKey;
     private final long expirationMs;
+    /** Immutable and thread-safe, so built once instead of per call. */
+    private final JwtParser parser;
+    /** Verified principals keyed by SHA-256 of the token. */
+    private final Cache<String, JwtPrincipal> verified;
 
     public JwtUtil(@Value("${jwt.secret}") String secret,
-                   @Value("${jwt.expiration-ms}") long expirationMs) {
+                   @Value("${jwt.expiration-ms}") long expirationMs,
+                   @Value("${jwt.cache.max-entries:10000}") long cacheMaxEntries) {
         // secret must be sufficiently long for HS256 (use at least 32 bytes)
         this.signingKey = Keys.hmacShaKeyFor(secret.getBytes());
         this.expirationMs = expirationMs;
-        log.info("✅ JwtUtil initialized with expiration={} ms", expirationMs);
+        this.parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(cacheMaxEntries)
+                .expireAfter(new UntilTokenExpiry())
+                .recordStats()
+                .build();
+        log.info("✅ JwtUtil initialized with expiration={} ms, verified-token cache={}", expirationMs, cacheMaxEntries);
+    }
+
+    /** The verified-token cache, for metrics. */
+    public Cache<?, ?> nativeCache() {
+        return verified;
     }
 
     public String generateToken(String username, Collection<String> roles) {
@@ -40,59 +66,90 @@ public class JwtUtil {
         return token;
     }
 
-    public boolean validateToken(String token) {
+    /**
+     * Verifies {@code token} and returns its principal, or empty if it is invalid or expired.
+     * Verified tokens are cached by hash until their {@code exp}, so a client reusing its token
+     * costs one hash and one lookup per request instead of an HMAC verification.
+     */
+    public Optional<JwtPrincipal> verify(String token) {
+        if (token == null || token.isBlank()) {
+            return Optional.empty();
+        }
+        String key = hash(token);
+        JwtPrincipal cached = verified.getIfPresent(key);
+        if (cached != null && !cached.isExpired(Instant.now())) {
+            return Optional.of(cached);
+        }
+        Optional<JwtPrincipal> principal = parse(token);
+        principal.ifPresent(p -> verified.put(key, p));
+        return principal;
+    }
+
+    /** One signature check and claims parse with the shared parser; never cached. */
+    public Optional<JwtPrincipal> parse(String token) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(signingKey) // must match token generation secret
-                    .build()
-                    .parseClaimsJws(token);
-            log.debug("✅ JWT is valid");
-            return true;
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            Date expiration = claims.getExpiration();
+            return Optional.of(new JwtPrincipal(claims.getSubject(), rolesOf(claims),
+                    expiration != null ? expiration.toInstant() : null));
         } catch (ExpiredJwtException e) {
-            log.warn("⚠️ JWT expired at {}", e.getClaims().getExpiration());
-        } catch (UnsupportedJwtException e) {
-            log.error("❌ Unsupported JWT: {}", e.getMessage());
-        } catch (MalformedJwtException e) {
-            log.error("❌ Malformed JWT: {}", e.getMessage());
-        } catch (SignatureException e) {
-            log.error("❌ Invalid JWT signature: {}", e.getMessage());
+            log.debug("⚠️ JWT expired at {}", e.getClaims().getExpiration());
+        } catch (JwtException e) {
+            log.warn("❌ Rejected JWT: {}", e.getMessage());
         } catch (IllegalArgumentException e) {
-            log.error("❌ Empty or null JWT: {}", e.getMessage());
+            log.debug("❌ Empty or null JWT: {}", e.getMessage());
         }
-        return false;
+        return Optional.empty();
+    }
+
+    public boolean validateToken(String token) {
+        return verify(token).isPresent();
     }
 
     public String extractUsername(String token) {
-        try {
-            Claims claims = Jwts.parserBuilder().setSigningKey(signingKey).build()
-                    .parseClaimsJws(token).getBody();
-            String username = claims.getSubject();
-            log.info("👤 Extracted username from JWT: {}", username);
-            return username;
-        } catch (Exception e) {
-            log.error("❌ Failed to extract username from token: {}", e.getMessage());
-            throw e;
-        }
+        return verify(token).map(JwtPrincipal::subject)
+                .orElseThrow(() -> new JwtException("Invalid JWT"));
     }
 
-    @SuppressWarnings("unchecked")
     public List<String> extractRoles(String token) {
+        return verify(token).map(JwtPrincipal::roles).orElse(Collections.emptyList());
+    }
+
+    private static List<String> rolesOf(Claims claims) {
+        Object rolesObj = claims.get("roles");
+        if (rolesObj instanceof List<?> roles) {
+            return roles.stream().map(Object::toString).toList();
+        }
+        return List.of();
+    }
+
+    private static String hash(String token) {
         try {
-            Claims claims = Jwts.parserBuilder().setSigningKey(signingKey).build()
-                    .parseClaimsJws(token).getBody();
-            Object rolesObj = claims.get("roles");
-            if (rolesObj instanceof List) {
-                List<String> roles = ((List<?>) rolesObj).stream()
-                        .map(Object::toString)
-                        .collect(Collectors.toList());
-                log.info("📌 Extracted roles from JWT: {}", roles);
-                return roles;
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /** Keeps each verified token until its own expiry. */
+    private static final class UntilTokenExpiry implements Expiry<String, JwtPrincipal> {
+        @Override
+        public long expireAfterCreate(String key, JwtPrincipal principal, long currentTime) {
+            if (principal.expiresAt() == null) {
+                return NO_EXPIRY_FALLBACK.toNanos();
             }
-            log.warn("⚠️ No roles claim found in JWT");
-            return Collections.emptyList();
-        } catch (Exception e) {
-            log.error("❌ Failed to extract roles from token: {}", e.getMessage());
-            return Collections.emptyList();
+            return Math.max(0, Duration.between(Instant.now(), principal.expiresAt()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, JwtPrincipal principal, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, principal, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, JwtPrincipal principal, long currentTime, long currentDuration) {
+            return currentDuration;
         }
     }
 }
@@ -4,6 +4,7 @@ import com.cathay.cdc.thumbnail.poc.repository.UserRepository;
 import com.cathay.cdc.thumbnail.poc.service.SecurityUserDetailsService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -22,6 +23,13 @@ public class SecurityConfig {
     private final UserRepository userRepository;
     private final JwtUtil jwtUtil;
 
+    @Value("${server.port:8080}")
+    private int serverPort;
+
+    /** Actuator's own port; -1 or the server port = actuator is served with the API. */
+    @Value("${management.server.port:-1}")
+    private int managementPort;
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http, SecurityUserDetailsService userDetailsService) throws Exception {
         JwtAuthenticationFilter jwtFilter = new JwtAuthenticationFilter(jwtUtil, userDetailsService);
@@ -29,9 +37,18 @@ public class SecurityConfig {
                 .csrf(csrf -> csrf.disable())
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/auth/**", "/register", "/health").permitAll()
+                        // offline signed URLs: the signature is the credential
+                        .requestMatchers("/blobs/**").permitAll()
                         .requestMatchers("/api/users/**").hasAuthority("ROLE_ADMIN")
                         .requestMatchers("/api/files/**").hasAuthority("ROLE_ADMIN")
+                        // requeueing quarantined work is an operator action
+                        .requestMatchers("/api/admin/thumbnails/failures/**").hasAuthority("ROLE_ADMIN")
                         .requestMatchers("/api/admin/**").hasAuthority("ROLE_USER")
+                        // scraped by Prometheus without a user token, but only on the separate management
+                        // port, which is not published (Cloud Run routes only $PORT)
+                        .requestMatchers(request -> isManagementPort(request.getLocalPort())
+                                && "/actuator/prometheus".equals(request.getRequestURI())).permitAll()
+                        .requestMatchers("/actuator/**").hasAuthority("ROLE_ADMIN")
                         .anyRequest().authenticated()
                 )
                 .addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class);
@@ -39,6 +56,10 @@ public class SecurityConfig {
         return http.build();
     }
 
+    private boolean isManagementPort(int port) {
+        return managementPort > 0 && managementPort != serverPort && port == managementPort;
+    }
+
     @Bean
     public PasswordEncoder passwordEncoder() {
         log.info("✅ BCryptPasswordEncoder bean created");
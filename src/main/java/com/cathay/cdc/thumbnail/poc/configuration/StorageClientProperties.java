@@ -0,0 +1,38 @@
+package com.cathay.cdc.thumbnail.poc.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Tuning for the single shared {@code Storage} client ({@code gcp.storage.*}).
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gcp.storage")
+public class StorageClientProperties {
+
+    public enum Transport { JSON, GRPC }
+
+    private Transport transport = Transport.JSON;
+
+    // HTTP (JSON transport) connection pool
+    private int maxConnections = 64;
+    private int maxConnectionsPerRoute = 64;
+    private Duration connectTimeout = Duration.ofSeconds(5);
+    private Duration readTimeout = Duration.ofSeconds(30);
+    private Duration connectionTimeToLive = Duration.ofMinutes(5);
+
+    private Retry retry = new Retry();
+
+    @Data
+    public static class Retry {
+        private int maxAttempts = 6;
+        private Duration initialDelay = Duration.ofMillis(200);
+        private Duration maxDelay = Duration.ofSeconds(10);
+        private double multiplier = 2.0;
+        private Duration totalTimeout = Duration.ofSeconds(60);
+    }
+}
@@ -0,0 +1,111 @@
+package com.cathay.cdc.thumbnail.poc.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Thumbnail rendition profiles. When no {@code thumbnail.renditions[n]} entries are configured
+ * a single "default" profile is derived from {@code thumbnail.width} and {@code thumbnail.folder},
+ * which keeps the original {@code thumbnails/<object>} layout.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "thumbnail")
+public class ThumbnailProperties {
+
+    public static final String DEFAULT_RENDITION = "default";
+
+    private int width = 150;
+    private String folder = "thumbnails";
+    private List<Rendition> renditions = new ArrayList<>();
+
+    public enum FitMode {
+        /** Scale to the given width, height follows the aspect ratio. */
+        WIDTH,
+        /** Scale to the given height, width follows the aspect ratio. */
+        HEIGHT,
+        /** Scale to fit inside width x height, keeping the aspect ratio. */
+        CONTAIN,
+        /** Scale to cover width x height, then center-crop the overflow. */
+        COVER,
+        /** Stretch to exactly width x height. */
+        EXACT
+    }
+
+    @Data
+    public static class Rendition {
+        private String name;
+        private int width;
+        private int height;
+        private FitMode fit = FitMode.CONTAIN;
+        private String format;           // null/auto = chosen per image, "source" = keep the original's, or a format name
+        private float quality = 0.75f;   // 0..1, used when the encoder supports compression
+        private String prefix;           // null = <folder>/<name>
+    }
+
+    public List<Rendition> effectiveRenditions() {
+        if (!renditions.isEmpty()) {
+            return renditions;
+        }
+        Rendition rendition = new Rendition();
+        rendition.setName(DEFAULT_RENDITION);
+        rendition.setWidth(width);
+        rendition.setHeight(width);
+        rendition.setPrefix(folder);
+        return List.of(rendition);
+    }
+
+    public String prefixOf(Rendition rendition) {
+        return rendition.getPrefix() != null ? rendition.getPrefix() : folder + "/" + rendition.getName();
+    }
+
+    /** Object name of {@code rendition} for the original {@code originalName}. */
+    public String renditionName(Rendition rendition, String originalName) {
+        return prefixOf(rendition) + "/" + originalName;
+    }
+
+    /** Whether {@code name} lives under the thumbnail folder or any rendition prefix. */
+    public boolean isRendition(String name) {
+        if (name.startsWith(folder + "/")) {
+            return true;
+        }
+        return effectiveRenditions().stream().anyMatch(r -> name.startsWith(prefixOf(r) + "/"));
+    }
+
+    /**
+     * Profile names plus a hash of every profile's full definition (size, fit, format, quality,
+     * prefix), e.g. {@code 64,400@3f9a0c1d22e7}. Stored on originals and renditions, so changing
+     * any setting of a profile makes the existing thumbnails outdated.
+     */
+    public String renditionSignature() {
+        List<Rendition> effective = effectiveRenditions();
+        StringBuilder definition = new StringBuilder();
+        for (Rendition rendition : effective) {
+            String format = rendition.getFormat() == null ? "auto" : rendition.getFormat().toLowerCase(Locale.ROOT);
+            definition.append(rendition.getName()).append('|')
+                    .append(rendition.getWidth()).append('|')
+                    .append(rendition.getHeight()).append('|')
+                    .append(rendition.getFit()).append('|')
+                    .append(format).append('|')
+                    .append(rendition.getQuality()).append('|')
+                    .append(prefixOf(rendition)).append('\n');
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(definition.toString().getBytes(StandardCharsets.UTF_8));
+            String names = String.join(",", effective.stream().map(Rendition::getName).toList());
+            return names + "@" + HexFormat.of().formatHex(digest, 0, 6);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -1,11 +1,10 @@
 package com.cathay.cdc.thumbnail.poc.controller;
 
 import com.cathay.cdc.thumbnail.poc.configuration.JwtUtil;
+import com.cathay.cdc.thumbnail.poc.service.LoginService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -14,41 +13,49 @@ import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Slf4j
 @RestController
 @RequestMapping("/auth")
 public class AuthController {
 
-    private final AuthenticationManager authenticationManager;
+    private final LoginService loginService;
     private final JwtUtil jwtUtil;
 
-    public AuthController(AuthenticationManager authenticationManager, JwtUtil jwtUtil) {
-        this.authenticationManager = authenticationManager;
+    public AuthController(LoginService loginService, JwtUtil jwtUtil) {
+        this.loginService = loginService;
         this.jwtUtil = jwtUtil;
     }
 
+    /**
+     * Rate-limited (429) and verified on the password pool; the request thread is released
+     * while BCrypt runs. The address limit uses the client address resolved from the proxy's
+     * X-Forwarded-For ({@code server.forward-headers-strategy}), not the proxy's own.
+     */
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody Map<String, String> request) {
+    public CompletableFuture<ResponseEntity<?>> login(@RequestBody Map<String, String> request,
+                                                      HttpServletRequest httpRequest) {
         String username = request.get("username");
         log.info("Login attempt for user: {}", username);
-        try {
-            Authentication authentication = authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(username, request.get("password"))
-            );
-            List<String> roles = authentication.getAuthorities().stream()
-                    .map(a -> a.getAuthority())
-                    .collect(Collectors.toList());
-            String token = jwtUtil.generateToken(username, roles);
-            log.info("Login successful for user: {}, roles={}", username, roles);
-            return ResponseEntity.ok(Map.of("token", token, "roles", roles));
-        } catch (AuthenticationException e) {
-            log.warn("Login failed for user: {}", username, e);
-            return ResponseEntity.status(401).body(Map.of("error", "Invalid credentials"));
-        } catch (Exception e) {
-            log.error("Unexpected error during login for user: {}", username, e);
-            return ResponseEntity.status(500).body(Map.of("error", "Internal server error"));
-        }
+        return loginService.authenticate(username, request.get("password"), httpRequest.getRemoteAddr())
+                .<ResponseEntity<?>>thenApply(authentication -> {
+                    List<String> roles = authentication.getAuthorities().stream()
+                            .map(a -> a.getAuthority())
+                            .toList();
+                    String token = jwtUtil.generateToken(username, roles);
+                    log.info("Login successful for user: {}, roles={}", username, roles);
+                    return ResponseEntity.ok(Map.of("token", token, "roles", roles));
+                })
+                .exceptionally(ex -> {
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    if (cause instanceof AuthenticationException) {
+                        log.warn("Login failed for user: {}: {}", username, cause.getMessage());
+                        return ResponseEntity.status(401).body(Map.of("error", "Invalid credentials"));
+                    }
+                    log.error("Unexpected error during login for user: {}", username, cause);
+                    return ResponseEntity.status(500).body(Map.of("error", "Internal server error"));
+                });
     }
 }
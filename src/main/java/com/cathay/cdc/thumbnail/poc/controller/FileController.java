@@ -1,16 +1,27 @@
 package com.cathay.cdc.thumbnail.poc.controller;
 
 import com.cathay.cdc.thumbnail.poc.controller.dto.ApiResponse;
-import com.cathay.cdc.thumbnail.poc.dto.FileMetadata;
+import com.cathay.cdc.thumbnail.poc.dto.FilePage;
+import com.cathay.cdc.thumbnail.poc.dto.FileQuery;
+import com.cathay.cdc.thumbnail.poc.dto.UploadResult;
+import com.cathay.cdc.thumbnail.poc.service.FileIndexService;
+import com.cathay.cdc.thumbnail.poc.service.FileUrlService;
 import com.cathay.cdc.thumbnail.poc.service.GcpStorageService;
+import com.cathay.cdc.thumbnail.poc.storage.StoredBlob;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.ResponseEntity;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.net.URI;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Slf4j
 @RestController
@@ -19,28 +30,127 @@ import java.util.List;
 public class FileController {
 
     private final GcpStorageService gcpStorageService;
+    private final FileIndexService fileIndexService;
+    private final FileUrlService fileUrlService;
 
     @Value("${gcp.bucket-name}")
     private String bucketName;
 
+    /**
+     * Cursor-paginated listing, newest first. Pass the returned {@code nextCursor} back as
+     * {@code cursor} to get the following page.
+     */
     @GetMapping
-    public ResponseEntity<ApiResponse<List<FileMetadata>>> listImages() {
+    public ResponseEntity<ApiResponse<FilePage>> listImages(
+            @RequestParam(value = "limit", defaultValue = "50") int limit,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "prefix", required = false) String prefix,
+            @RequestParam(value = "since", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+            @RequestParam(value = "contentType", required = false) String contentType) {
         log.info("Fetching list of images from bucket: {}", bucketName);
-        List<FileMetadata> images = gcpStorageService.listFiles(bucketName);
-        return ResponseEntity.ok(ApiResponse.success(images, "Fetched image list successfully"));
+        FilePage page = gcpStorageService.listFiles(bucketName, new FileQuery(prefix, since, contentType, cursor, limit));
+        return ResponseEntity.ok(ApiResponse.success(page, "Fetched image list successfully"));
+    }
+
+    @PostMapping("/index/rebuild")
+    public ResponseEntity<ApiResponse<Long>> rebuildIndex() {
+        long indexed = fileIndexService.rebuild(bucketName);
+        return ResponseEntity.ok(ApiResponse.success(indexed, "File index rebuilt"));
     }
 
     @PostMapping("/upload")
-    public ResponseEntity<ApiResponse<List<FileMetadata>>> upload(@RequestParam("files") List<MultipartFile> files) {
-        List<FileMetadata>  publicUrl = gcpStorageService.uploadMultipartFiles(bucketName, files);
-        log.info("File uploaded: {}", publicUrl.size());
-        return ResponseEntity.ok(ApiResponse.success(publicUrl, "Files uploaded successfully"));
+    public ResponseEntity<ApiResponse<List<UploadResult>>> upload(@RequestParam("files") List<MultipartFile> files) {
+        List<UploadResult> results = gcpStorageService.uploadMultipartFiles(bucketName, files);
+        long failed = results.stream().filter(r -> !r.isSuccess()).count();
+        log.info("Files uploaded: {}, failed: {}", results.size() - failed, failed);
+        if (failed > 0) {
+            return ResponseEntity.status(HttpStatus.MULTI_STATUS)
+                    .body(ApiResponse.<List<UploadResult>>builder()
+                            .success(failed < results.size())
+                            .message(failed + " of " + results.size() + " files failed to upload")
+                            .data(results)
+                            .timestamp(LocalDateTime.now())
+                            .build());
+        }
+        return ResponseEntity.ok(ApiResponse.success(results, "Files uploaded successfully"));
     }
 
+    /**
+     * Streams the object bytes straight from storage. Supports a single HTTP Range and answers
+     * conditional requests (If-None-Match / If-Modified-Since) with 304, using the blob
+     * generation as the ETag. With signed URLs enabled the client is redirected to storage
+     * instead, unless it asks for {@code redirect=false}.
+     */
     @GetMapping("/download/{fileName}")
-    public ResponseEntity<ApiResponse<byte[]>> download(@PathVariable("fileName") String fileName) {
-        byte[] fileContent = gcpStorageService.downloadFile(bucketName, fileName);
-        log.info("File downloaded: {}", fileName);
-        return ResponseEntity.ok(ApiResponse.success(fileContent, "File downloaded successfully"));
+    public ResponseEntity<StreamingResponseBody> download(@PathVariable("fileName") String fileName,
+                                                          @RequestParam(value = "redirect", defaultValue = "true") boolean redirect,
+                                                          @RequestHeader HttpHeaders requestHeaders,
+                                                          WebRequest webRequest) {
+        if (redirect && fileUrlService.isSigned()) {
+            log.info("File download redirected to storage: {}", fileName);
+            return ResponseEntity.status(HttpStatus.FOUND)
+                    .location(URI.create(fileUrlService.urlOf(bucketName, fileName)))
+                    .build();
+        }
+        StoredBlob blob = gcpStorageService.getFile(bucketName, fileName);
+        String etag = "\"" + blob.generation() + "\"";
+        long lastModified = Optional.ofNullable(blob.createTime()).orElse(-1L);
+        if (webRequest.checkNotModified(etag, lastModified)) {
+            log.info("File not modified: {}", fileName);
+            return null;
+        }
+
+        long length = blob.size();
+        long start = 0;
+        long end = length - 1;
+        HttpStatus status = HttpStatus.OK;
+        HttpHeaders headers = new HttpHeaders();
+
+        List<HttpRange> ranges = rangesOf(requestHeaders, etag);
+        if (ranges.size() == 1) {
+            try {
+                start = ranges.get(0).getRangeStart(length);
+                end = ranges.get(0).getRangeEnd(length);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes */" + length)
+                        .build();
+            }
+            status = HttpStatus.PARTIAL_CONTENT;
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
+
+        long offset = start;
+        long count = end - start + 1;
+        headers.setContentType(Optional.ofNullable(blob.contentType())
+                .map(MediaType::parseMediaType)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM));
+        headers.setContentLength(count);
+        headers.setETag(etag);
+        if (lastModified >= 0) {
+            headers.setLastModified(lastModified);
+        }
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        headers.setContentDisposition(ContentDisposition.inline().filename(fileName).build());
+
+        log.info("File download started: {} ({} of {} bytes)", fileName, count, length);
+        StreamingResponseBody body = out -> gcpStorageService.streamFile(blob, offset, count, out);
+        return new ResponseEntity<>(body, headers, status);
+    }
+
+    /** Only a single range is honoured; multi-range or a stale If-Range gets the full body. */
+    private List<HttpRange> rangesOf(HttpHeaders requestHeaders, String etag) {
+        String ifRange = requestHeaders.getFirst(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(etag)) {
+            return List.of();
+        }
+        try {
+            List<HttpRange> ranges = requestHeaders.getRange();
+            return ranges.size() == 1 ? ranges : List.of();
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring malformed Range header: {}", e.getMessage());
+            return List.of();
+        }
     }
 }
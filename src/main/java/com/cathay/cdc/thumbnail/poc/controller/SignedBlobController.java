@@ -0,0 +1,58 @@
+package com.cathay.cdc.thumbnail.poc.controller;
+
+import com.cathay.cdc.thumbnail.poc.exception.ForbiddenException;
+import com.cathay.cdc.thumbnail.poc.exception.NotFoundException;
+import com.cathay.cdc.thumbnail.poc.storage.BlobStore;
+import com.cathay.cdc.thumbnail.poc.storage.LocalUrlSigner;
+import com.cathay.cdc.thumbnail.poc.storage.StoredBlob;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Optional;
+
+/**
+ * Serves the URLs issued by {@link LocalUrlSigner}, playing the part of the storage endpoint
+ * a GCS signed URL points at. Only present when the blob store is not GCS.
+ */
+@Slf4j
+@RestController
+@RequestMapping(LocalUrlSigner.PATH)
+@RequiredArgsConstructor
+@ConditionalOnExpression("'${blobstore.type:gcs}' != 'gcs'")
+public class SignedBlobController {
+
+    private final LocalUrlSigner urlSigner;
+    private final BlobStore blobStore;
+
+    @GetMapping("/{bucket}/{*name}")
+    public ResponseEntity<StreamingResponseBody> get(@PathVariable("bucket") String bucket,
+                                                     @PathVariable("name") String name,
+                                                     @RequestParam("expires") long expires,
+                                                     @RequestParam("signature") String signature) {
+        // {*name} captures the leading slash as well
+        String objectName = name.startsWith("/") ? name.substring(1) : name;
+        if (!urlSigner.verify(bucket, objectName, expires, signature)) {
+            throw new ForbiddenException("Invalid or expired signature for " + objectName);
+        }
+        StoredBlob blob = blobStore.get(bucket, objectName)
+                .orElseThrow(() -> new NotFoundException("File not found: " + objectName));
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(Optional.ofNullable(blob.contentType())
+                .map(MediaType::parseMediaType)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM));
+        headers.setContentLength(blob.size());
+        headers.setETag("\"" + blob.generation() + "\"");
+        if (blob.cacheControl() != null) {
+            headers.setCacheControl(blob.cacheControl());
+        }
+        StreamingResponseBody body = out -> blobStore.read(blob, 0, blob.size(), out);
+        return ResponseEntity.ok().headers(headers).body(body);
+    }
+}
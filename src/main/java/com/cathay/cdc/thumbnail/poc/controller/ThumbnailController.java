@@ -2,12 +2,17 @@ package com.cathay.cdc.thumbnail.poc.controller;
 
 import com.cathay.cdc.thumbnail.poc.controller.dto.ApiResponse;
 import com.cathay.cdc.thumbnail.poc.dto.FileMetadata;
+import com.cathay.cdc.thumbnail.poc.dto.JobRunSummary;
+import com.cathay.cdc.thumbnail.poc.dto.WorkItemFailure;
 import com.cathay.cdc.thumbnail.poc.service.ThumbnailService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
@@ -36,4 +41,37 @@ public class ThumbnailController {
         log.info("✅ Response ready for /api/admin/thumbnails/last");
         return ResponseEntity.ok(response);
     }
+
+    @GetMapping("/thumbnails/runs")
+    public ResponseEntity<ApiResponse<List<JobRunSummary>>> getRecentRuns(
+            @RequestParam(value = "limit", defaultValue = "5") int limit) {
+        log.info("📥 Request received: GET /api/admin/thumbnails/runs limit={}", limit);
+
+        List<JobRunSummary> runs = thumbnailService.getRecentRuns(limit);
+        log.info("📊 Returning {} job runs", runs.size());
+        return ResponseEntity.ok(ApiResponse.success(runs, "Recent thumbnail job runs"));
+    }
+
+    @GetMapping("/thumbnails/failures")
+    public ResponseEntity<ApiResponse<List<WorkItemFailure>>> getFailures(
+            @RequestParam(value = "state", defaultValue = "QUARANTINED") String state,
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        log.info("📥 Request received: GET /api/admin/thumbnails/failures state={} limit={}", state, limit);
+
+        List<WorkItemFailure> failures = thumbnailService.getFailures(state.toUpperCase(), limit);
+        log.info("📊 Returning {} failed work items", failures.size());
+        return ResponseEntity.ok(ApiResponse.success(failures, "Failed thumbnail work items"));
+    }
+
+    @PostMapping("/thumbnails/failures/{id}/requeue")
+    public ResponseEntity<ApiResponse<Integer>> requeue(@PathVariable("id") long id) {
+        log.info("📥 Request received: POST /api/admin/thumbnails/failures/{}/requeue", id);
+        return ResponseEntity.ok(ApiResponse.success(thumbnailService.requeueQuarantined(id), "Work item requeued"));
+    }
+
+    @PostMapping("/thumbnails/failures/requeue")
+    public ResponseEntity<ApiResponse<Integer>> requeueAll() {
+        log.info("📥 Request received: POST /api/admin/thumbnails/failures/requeue");
+        return ResponseEntity.ok(ApiResponse.success(thumbnailService.requeueQuarantined(null), "Quarantined work items requeued"));
+    }
 }
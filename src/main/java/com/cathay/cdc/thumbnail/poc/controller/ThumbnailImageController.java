@@ -0,0 +1,62 @@
+package com.cathay.cdc.thumbnail.poc.controller;
+
+import com.cathay.cdc.thumbnail.poc.service.FileUrlService;
+import com.cathay.cdc.thumbnail.poc.service.OnDemandThumbnailService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/thumbnails")
+@RequiredArgsConstructor
+public class ThumbnailImageController {
+
+    private final OnDemandThumbnailService onDemandThumbnailService;
+    private final FileUrlService fileUrlService;
+
+    @Value("${gcp.bucket-name}")
+    private String bucketName;
+
+    @GetMapping("/{*object}")
+    public ResponseEntity<byte[]> getThumbnail(@PathVariable("object") String object,
+                                               @RequestParam(value = "w", defaultValue = "0") int width,
+                                               @RequestParam(value = "h", defaultValue = "0") int height,
+                                               @RequestParam(value = "fmt", required = false) String format,
+                                               @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        // {*object} captures the leading slash as well
+        String objectName = object.startsWith("/") ? object.substring(1) : object;
+        log.info("📥 Request received: GET /api/thumbnails/{} w={} h={} fmt={}", objectName, width, height, format);
+
+        OnDemandThumbnailService.Image image =
+                onDemandThumbnailService.getThumbnail(objectName, width, height, format, accept);
+        if (image.storedName() != null && fileUrlService.isSigned()) {
+            // the rendered object is immutable in the bucket; let the client (or CDN) fetch it there
+            log.info("↪️ Redirecting to stored thumbnail {}", image.storedName());
+            ResponseEntity.HeadersBuilder<?> redirect = ResponseEntity.status(HttpStatus.FOUND)
+                    .location(URI.create(fileUrlService.urlOf(bucketName, image.storedName())));
+            if (format == null || "auto".equalsIgnoreCase(format)) {
+                redirect.varyBy(HttpHeaders.ACCEPT);
+            }
+            return redirect.build();
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(image.contentType()))
+                .contentLength(image.content().length)
+                .cacheControl(CacheControl.maxAge(1, TimeUnit.HOURS));
+        if (format == null || "auto".equalsIgnoreCase(format)) {
+            // the format was negotiated, shared caches must key on Accept too
+            response.varyBy(HttpHeaders.ACCEPT);
+        }
+        return response.body(image.content());
+    }
+}
@@ -1,15 +1,15 @@
 package com.cathay.cdc.thumbnail.poc.controller;
 
-import com.cathay.cdc.thumbnail.poc.entity.User;
+import com.cathay.cdc.thumbnail.poc.controller.dto.ApiResponse;
+import com.cathay.cdc.thumbnail.poc.dto.UserPage;
 import com.cathay.cdc.thumbnail.poc.service.UserService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.List;
-
 @Slf4j
 @RestController
 @RequestMapping("/api/users")
@@ -21,14 +21,12 @@ public class UserController {
     }
 
     @GetMapping
-    public ResponseEntity<List<User>> getAllUsers() {
-        log.info("Received request to fetch all users");
-        List<User> users = userService.findAll();
-        if (users.isEmpty()) {
-            log.warn("No users found in database");
-            return ResponseEntity.noContent().build();
-        }
-        log.info("Returning {} users", users.size());
-        return ResponseEntity.ok(users);
+    public ResponseEntity<ApiResponse<UserPage>> getAllUsers(
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "50") int size) {
+        log.info("📥 Received request to list users: page={}, size={}", page, size);
+        UserPage users = userService.listUsers(page, size);
+        log.info("✅ Returning {} of {} users", users.items().size(), users.total());
+        return ResponseEntity.ok(ApiResponse.success(users, "Users fetched successfully"));
     }
 }
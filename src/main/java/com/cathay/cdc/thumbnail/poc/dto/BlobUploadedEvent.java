@@ -0,0 +1,7 @@
+package com.cathay.cdc.thumbnail.poc.dto;
+
+/**
+ * Published after an object has been written to the bucket by this instance.
+ */
+public record BlobUploadedEvent(String bucket, String name) {
+}
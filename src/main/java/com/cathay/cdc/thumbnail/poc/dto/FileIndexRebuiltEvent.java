@@ -0,0 +1,7 @@
+package com.cathay.cdc.thumbnail.poc.dto;
+
+/**
+ * Published after the file index of a bucket has been rebuilt from a full listing.
+ */
+public record FileIndexRebuiltEvent(String bucket) {
+}
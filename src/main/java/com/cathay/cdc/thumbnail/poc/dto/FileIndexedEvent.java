@@ -0,0 +1,9 @@
+package com.cathay.cdc.thumbnail.poc.dto;
+
+/**
+ * Published after an object has been written to the file index.
+ *
+ * @param cursor listing cursor positioned right after this file
+ */
+public record FileIndexedEvent(String bucket, FileMetadata file, String cursor) {
+}
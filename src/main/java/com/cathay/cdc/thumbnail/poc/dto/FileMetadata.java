@@ -8,7 +8,7 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Data
-@Builder // Gives you fluent builder API
+@Builder(toBuilder = true) // Gives you fluent builder API
 @NoArgsConstructor // Required by JPA (reflection)
 @AllArgsConstructor // Needed by @Builder (to call all-args constructor)
 public class FileMetadata {
@@ -0,0 +1,9 @@
+package com.cathay.cdc.thumbnail.poc.dto;
+
+import java.util.List;
+
+/**
+ * One page of the file listing, newest first. {@code nextCursor} is {@code null} on the last page.
+ */
+public record FilePage(List<FileMetadata> items, String nextCursor) {
+}
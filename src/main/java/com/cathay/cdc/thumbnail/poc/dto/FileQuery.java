@@ -0,0 +1,15 @@
+package com.cathay.cdc.thumbnail.poc.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Filters and position for one page of the file listing.
+ *
+ * @param prefix      only names starting with this, if set
+ * @param since       only objects created at or after this (UTC), if set
+ * @param contentType exact content type, or a {@code type/*} wildcard, if set
+ * @param cursor      opaque cursor from the previous page, {@code null} for the first page
+ * @param limit       page size
+ */
+public record FileQuery(String prefix, LocalDateTime since, String contentType, String cursor, int limit) {
+}
@@ -0,0 +1,32 @@
+package com.cathay.cdc.thumbnail.poc.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobRunSummary {
+    private Long id;
+    private String mode;            // incremental | reconcile
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private long listed;
+    private long created;
+    private long skipped;
+    private long failed;
+    private long elapsedMs;
+    private long downloadMs;        // summed over workers
+    private long resizeMs;
+    private long uploadMs;
+    private long outputCount;       // thumbnails produced; outputs may hold only a sample
+    private long reused;            // originals whose renditions were copied from identical content
+    private long reusedBytes;       // source bytes not downloaded or decoded because of that
+    private List<FileMetadata> outputs;
+}
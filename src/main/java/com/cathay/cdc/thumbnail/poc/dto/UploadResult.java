@@ -0,0 +1,21 @@
+package com.cathay.cdc.thumbnail.poc.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one file in a multipart upload request.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadResult {
+    private String fileName;
+    private boolean success;
+    private FileMetadata file;  // set when success
+    private String duplicateOf; // set when identical content was already stored under this name
+    private String error;       // set when failed
+}
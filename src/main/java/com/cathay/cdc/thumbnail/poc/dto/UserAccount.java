@@ -0,0 +1,14 @@
+package com.cathay.cdc.thumbnail.poc.dto;
+
+import java.util.Set;
+
+/**
+ * What authentication needs to know about a user. Immutable, so cached instances can be
+ * shared; Spring Security erases credentials on the {@code UserDetails} built from it, not here.
+ */
+public record UserAccount(Long id, String username, String passwordHash, boolean enabled, Set<String> roles) {
+
+    public UserAccount {
+        roles = Set.copyOf(roles);
+    }
+}
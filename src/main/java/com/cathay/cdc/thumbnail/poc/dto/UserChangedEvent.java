@@ -0,0 +1,5 @@
+package com.cathay.cdc.thumbnail.poc.dto;
+
+/** Published, within this instance, after a user row has been inserted, updated or deleted. */
+public record UserChangedEvent(Long id, String username) {
+}
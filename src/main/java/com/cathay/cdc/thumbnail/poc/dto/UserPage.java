@@ -0,0 +1,7 @@
+package com.cathay.cdc.thumbnail.poc.dto;
+
+import java.util.List;
+
+/** One page of the user listing, ordered by id. */
+public record UserPage(List<UserSummary> items, int page, int size, long total) {
+}
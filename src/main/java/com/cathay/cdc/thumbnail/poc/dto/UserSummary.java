@@ -0,0 +1,8 @@
+package com.cathay.cdc.thumbnail.poc.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/** A user as shown in the admin listing; never carries the password hash. */
+public record UserSummary(Long id, String username, boolean enabled, LocalDateTime createdAt, List<String> roles) {
+}
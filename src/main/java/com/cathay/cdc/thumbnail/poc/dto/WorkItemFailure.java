@@ -0,0 +1,11 @@
+package com.cathay.cdc.thumbnail.poc.dto;
+
+import java.time.OffsetDateTime;
+
+/**
+ * A work item that has failed at least once: still retrying ({@code PENDING}, not before
+ * {@code nextAttemptAt}) or given up on ({@code QUARANTINED}).
+ */
+public record WorkItemFailure(long id, String bucket, String name, long generation, String state, int attempts,
+                              String lastError, OffsetDateTime nextAttemptAt, OffsetDateTime updatedAt) {
+}
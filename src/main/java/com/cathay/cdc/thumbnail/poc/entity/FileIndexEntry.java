@@ -0,0 +1,45 @@
+package com.cathay.cdc.thumbnail.poc.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * One row per object in the bucket, kept current by uploads and thumbnail generation so that
+ * listings can be served without touching the object store.
+ */
+@Entity
+@Table(name = "file_index")
+@Data
+public class FileIndexEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String bucket;
+
+    @Column(nullable = false, length = 1024)
+    private String name;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    @Column(nullable = false)
+    private long size;
+
+    @Column(nullable = false)
+    private long generation;
+
+    /** Base64 MD5 of the content, {@code null} when the store does not report one. */
+    @Column(length = 32)
+    private String md5;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "indexed_at", nullable = false)
+    private LocalDateTime indexedAt;
+}
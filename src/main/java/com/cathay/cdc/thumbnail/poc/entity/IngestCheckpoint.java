@@ -0,0 +1,29 @@
+package com.cathay.cdc.thumbnail.poc.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "ingest_checkpoints")
+@Data
+public class IngestCheckpoint {
+
+    @Id
+    @Column(length = 100)
+    private String name;
+
+    @Column(name = "last_create_time", nullable = false)
+    private long lastCreateTime;
+
+    @Column(name = "last_generation", nullable = false)
+    private long lastGeneration;
+
+    /** Listing position of a sweep in progress; {@code null} when the last sweep finished. */
+    @Column(name = "page_token", length = 1024)
+    private String pageToken;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,26 @@
+package com.cathay.cdc.thumbnail.poc.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Cluster-wide lock for work that only one instance should do at a time, such as listing the
+ * bucket. Held until {@code lockedUntil}, so a crashed holder releases it by expiry.
+ */
+@Entity
+@Table(name = "job_locks")
+@Data
+public class JobLock {
+
+    @Id
+    @Column(length = 100)
+    private String name;
+
+    @Column(name = "locked_by", nullable = false)
+    private String lockedBy;
+
+    @Column(name = "locked_until", nullable = false)
+    private OffsetDateTime lockedUntil;
+}
@@ -0,0 +1,29 @@
+package com.cathay.cdc.thumbnail.poc.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ThumbnailJobOutput {
+
+    private String bucket;
+
+    @Column(nullable = false, length = 1024)
+    private String name;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    private long size;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+}
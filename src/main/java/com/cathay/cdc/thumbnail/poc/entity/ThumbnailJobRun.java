@@ -0,0 +1,59 @@
+package com.cathay.cdc.thumbnail.poc.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Entity
+@Table(name = "thumbnail_job_runs")
+@Data
+public class ThumbnailJobRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 20)
+    private String mode;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at", nullable = false)
+    private LocalDateTime finishedAt;
+
+    private long listed;
+    private long created;
+    private long skipped;
+    private long failed;
+
+    @Column(name = "elapsed_ms")
+    private long elapsedMs;
+
+    @Column(name = "download_ms")
+    private long downloadMs;
+
+    @Column(name = "resize_ms")
+    private long resizeMs;
+
+    @Column(name = "upload_ms")
+    private long uploadMs;
+
+    /** Thumbnails produced by the run; {@link #outputs} holds at most a bounded sample of them. */
+    @Column(name = "output_count")
+    private long outputCount;
+
+    /** Originals whose renditions were copied from another object with the same content. */
+    private long reused;
+
+    @Column(name = "reused_bytes")
+    private long reusedBytes;
+
+    @ElementCollection
+    @CollectionTable(name = "thumbnail_job_outputs", joinColumns = @JoinColumn(name = "run_id"))
+    @OrderColumn(name = "position")
+    private List<ThumbnailJobOutput> outputs = new ArrayList<>();
+}
@@ -0,0 +1,59 @@
+package com.cathay.cdc.thumbnail.poc.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.OffsetDateTime;
+
+/**
+ * One original (bucket, name, generation) waiting for thumbnails, or already done. A worker
+ * owns an item while {@code leaseUntil} is in the future; after that any instance may claim it.
+ * A failed attempt records its error and is not retried before {@code nextAttemptAt}; after
+ * {@code max-attempts} failures the item is {@link #QUARANTINED} until an admin requeues it.
+ */
+@Entity
+@Table(name = "thumbnail_work_items")
+@Data
+public class ThumbnailWorkItem {
+
+    public static final String PENDING = "PENDING";
+    public static final String DONE = "DONE";
+    public static final String QUARANTINED = "QUARANTINED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String bucket;
+
+    @Column(nullable = false, length = 1024)
+    private String name;
+
+    @Column(nullable = false)
+    private long generation;
+
+    @Column(nullable = false, length = 20)
+    private String state;
+
+    @Column(name = "leased_by")
+    private String leasedBy;
+
+    @Column(name = "lease_until")
+    private OffsetDateTime leaseUntil;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at")
+    private OffsetDateTime nextAttemptAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", insertable = false, updatable = false)
+    private OffsetDateTime createdAt;
+
+    @Column(name = "updated_at", insertable = false, updatable = false)
+    private OffsetDateTime updatedAt;
+}
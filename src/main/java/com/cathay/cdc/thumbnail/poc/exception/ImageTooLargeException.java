@@ -0,0 +1,7 @@
+package com.cathay.cdc.thumbnail.poc.exception;
+
+public class ImageTooLargeException extends RuntimeException {
+    public ImageTooLargeException(String message) {
+        super(message);
+    }
+}
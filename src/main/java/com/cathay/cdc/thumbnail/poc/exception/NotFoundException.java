@@ -0,0 +1,7 @@
+package com.cathay.cdc.thumbnail.poc.exception;
+
+public class NotFoundException extends RuntimeException {
+    public NotFoundException(String message) {
+        super(message);
+    }
+}
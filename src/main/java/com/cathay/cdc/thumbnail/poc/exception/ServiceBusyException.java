@@ -0,0 +1,7 @@
+package com.cathay.cdc.thumbnail.poc.exception;
+
+public class ServiceBusyException extends RuntimeException {
+    public ServiceBusyException(String message) {
+        super(message);
+    }
+}
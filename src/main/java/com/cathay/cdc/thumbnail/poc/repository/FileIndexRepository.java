@@ -0,0 +1,53 @@
+package com.cathay.cdc.thumbnail.poc.repository;
+
+import com.cathay.cdc.thumbnail.poc.entity.FileIndexEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface FileIndexRepository extends JpaRepository<FileIndexEntry, Long>, JpaSpecificationExecutor<FileIndexEntry> {
+
+    boolean existsByBucket(String bucket);
+
+    /** Objects with the given content, oldest first. */
+    List<FileIndexEntry> findTop10ByBucketAndMd5AndSizeOrderByIdAsc(String bucket, String md5, long size);
+
+    /**
+     * Inserts or refreshes the row for {@code bucket/name} and returns its id, or {@code null}
+     * when the row already holds a newer generation. An older generation never overwrites a
+     * newer one, so out-of-order writers cannot roll an entry back.
+     */
+    @Transactional
+    @Query(value = """
+            INSERT INTO file_index (bucket, name, content_type, size, generation, md5, created_at, indexed_at)
+            VALUES (:bucket, :name, :contentType, :size, :generation, :md5, :createdAt, :indexedAt)
+            ON CONFLICT (bucket, name) DO UPDATE
+               SET content_type = EXCLUDED.content_type,
+                   size = EXCLUDED.size,
+                   generation = EXCLUDED.generation,
+                   md5 = EXCLUDED.md5,
+                   created_at = EXCLUDED.created_at,
+                   indexed_at = EXCLUDED.indexed_at
+             WHERE file_index.generation <= EXCLUDED.generation
+            RETURNING id
+            """, nativeQuery = true)
+    Long upsert(@Param("bucket") String bucket,
+                @Param("name") String name,
+                @Param("contentType") String contentType,
+                @Param("size") long size,
+                @Param("generation") long generation,
+                @Param("md5") String md5,
+                @Param("createdAt") LocalDateTime createdAt,
+                @Param("indexedAt") LocalDateTime indexedAt);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM FileIndexEntry f WHERE f.bucket = :bucket AND f.indexedAt < :before")
+    int deleteByBucketIndexedBefore(@Param("bucket") String bucket, @Param("before") LocalDateTime before);
+}
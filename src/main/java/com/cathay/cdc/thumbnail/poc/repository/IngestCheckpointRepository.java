@@ -0,0 +1,7 @@
+package com.cathay.cdc.thumbnail.poc.repository;
+
+import com.cathay.cdc.thumbnail.poc.entity.IngestCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface IngestCheckpointRepository extends JpaRepository<IngestCheckpoint, String> {
+}
@@ -0,0 +1,42 @@
+package com.cathay.cdc.thumbnail.poc.repository;
+
+import com.cathay.cdc.thumbnail.poc.entity.JobLock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface JobLockRepository extends JpaRepository<JobLock, String> {
+
+    /**
+     * Takes (or extends) the lock if it is free, expired or already ours. Returns 1 when the
+     * caller holds the lock afterwards. Uses the database clock so instances need not agree on time.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            INSERT INTO job_locks (name, locked_by, locked_until)
+            VALUES (:name, :owner, now() + make_interval(secs => :seconds))
+            ON CONFLICT (name) DO UPDATE
+               SET locked_by = EXCLUDED.locked_by,
+                   locked_until = EXCLUDED.locked_until
+             WHERE job_locks.locked_until < now() OR job_locks.locked_by = EXCLUDED.locked_by
+            """, nativeQuery = true)
+    int tryAcquire(@Param("name") String name, @Param("owner") String owner, @Param("seconds") long seconds);
+
+    /** Extends a lock the caller still holds; returns 0 when another instance has taken it. */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE job_locks SET locked_until = now() + make_interval(secs => :seconds)
+             WHERE name = :name AND locked_by = :owner
+            """, nativeQuery = true)
+    int renew(@Param("name") String name, @Param("owner") String owner, @Param("seconds") long seconds);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE job_locks SET locked_until = now() WHERE name = :name AND locked_by = :owner",
+            nativeQuery = true)
+    int release(@Param("name") String name, @Param("owner") String owner);
+}
@@ -0,0 +1,23 @@
+package com.cathay.cdc.thumbnail.poc.repository;
+
+import com.cathay.cdc.thumbnail.poc.entity.ThumbnailJobRun;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public interface ThumbnailJobRunRepository extends JpaRepository<ThumbnailJobRun, Long> {
+
+    @Query("SELECT r FROM ThumbnailJobRun r ORDER BY r.id DESC")
+    List<ThumbnailJobRun> findLatest(Pageable pageable);
+
+    /** Outputs go with their run through the ON DELETE CASCADE foreign key. */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ThumbnailJobRun r WHERE r.id <= :id")
+    int deleteUpTo(@Param("id") long id);
+}
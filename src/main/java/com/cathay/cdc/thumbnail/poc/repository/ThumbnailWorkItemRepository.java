@@ -0,0 +1,157 @@
+package com.cathay.cdc.thumbnail.poc.repository;
+
+import com.cathay.cdc.thumbnail.poc.entity.ThumbnailWorkItem;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ThumbnailWorkItemRepository extends JpaRepository<ThumbnailWorkItem, Long> {
+
+    /** Adds a pending item unless this generation is already queued or done. */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            INSERT INTO thumbnail_work_items (bucket, name, generation, state)
+            VALUES (:bucket, :name, :generation, 'PENDING')
+            ON CONFLICT (bucket, name, generation) DO NOTHING
+            """, nativeQuery = true)
+    int enqueue(@Param("bucket") String bucket, @Param("name") String name, @Param("generation") long generation);
+
+    /** Like {@link #enqueue}, but also puts a done item back in the queue. */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            INSERT INTO thumbnail_work_items (bucket, name, generation, state)
+            VALUES (:bucket, :name, :generation, 'PENDING')
+            ON CONFLICT (bucket, name, generation) DO UPDATE
+               SET state = 'PENDING', attempts = 0, leased_by = NULL, lease_until = NULL, updated_at = now()
+             WHERE thumbnail_work_items.state = 'DONE'
+            """, nativeQuery = true)
+    int reopen(@Param("bucket") String bucket, @Param("name") String name, @Param("generation") long generation);
+
+    /**
+     * Leases up to {@code limit} pending items whose lease is free or expired and whose backoff
+     * has passed. Rows locked by a concurrent claim are skipped rather than waited on, so
+     * instances never hand out the same item.
+     */
+    @Transactional
+    @Query(value = """
+            UPDATE thumbnail_work_items
+               SET leased_by = :owner,
+                   lease_until = now() + make_interval(secs => :leaseSeconds),
+                   attempts = attempts + 1,
+                   updated_at = now()
+             WHERE id IN (SELECT id
+                            FROM thumbnail_work_items
+                           WHERE state = 'PENDING'
+                             AND (lease_until IS NULL OR lease_until < now())
+                             AND (next_attempt_at IS NULL OR next_attempt_at <= now())
+                             AND attempts < :maxAttempts
+                           ORDER BY id
+                           LIMIT :limit
+                             FOR UPDATE SKIP LOCKED)
+            RETURNING *
+            """, nativeQuery = true)
+    List<ThumbnailWorkItem> claim(@Param("owner") String owner,
+                                  @Param("leaseSeconds") long leaseSeconds,
+                                  @Param("maxAttempts") int maxAttempts,
+                                  @Param("limit") int limit);
+
+    /** Extends the leases the caller still holds on {@code ids}; returns how many it did. */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE thumbnail_work_items
+               SET lease_until = now() + make_interval(secs => :leaseSeconds)
+             WHERE id IN (:ids) AND leased_by = :owner AND state = 'PENDING'
+            """, nativeQuery = true)
+    int renewLeases(@Param("ids") Collection<Long> ids,
+                    @Param("owner") String owner,
+                    @Param("leaseSeconds") long leaseSeconds);
+
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE thumbnail_work_items
+               SET state = 'DONE', leased_by = NULL, lease_until = NULL, updated_at = now()
+             WHERE id = :id AND leased_by = :owner
+            """, nativeQuery = true)
+    int complete(@Param("id") long id, @Param("owner") String owner);
+
+    /**
+     * Records a failed attempt: releases the lease, keeps the error and pushes the next attempt
+     * back by {@code backoffSeconds}. The item is quarantined once it has used up its attempts.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE thumbnail_work_items
+               SET state = CASE WHEN attempts >= :maxAttempts THEN 'QUARANTINED' ELSE state END,
+                   next_attempt_at = now() + make_interval(secs => :backoffSeconds),
+                   last_error = :error,
+                   leased_by = NULL, lease_until = NULL, updated_at = now()
+             WHERE id = :id AND leased_by = :owner AND state = 'PENDING'
+            """, nativeQuery = true)
+    int fail(@Param("id") long id,
+             @Param("owner") String owner,
+             @Param("error") String error,
+             @Param("backoffSeconds") long backoffSeconds,
+             @Param("maxAttempts") int maxAttempts);
+
+    /**
+     * Hands a leased item back without holding it against the item: the attempt its claim
+     * counted is returned, and it becomes claimable again after {@code delaySeconds}.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE thumbnail_work_items
+               SET attempts = GREATEST(attempts - 1, 0),
+                   next_attempt_at = now() + make_interval(secs => :delaySeconds),
+                   leased_by = NULL, lease_until = NULL, updated_at = now()
+             WHERE id = :id AND leased_by = :owner AND state = 'PENDING'
+            """, nativeQuery = true)
+    int defer(@Param("id") long id, @Param("owner") String owner, @Param("delaySeconds") long delaySeconds);
+
+    /** Quarantines items whose last lease ran out (the worker died) with no attempts left. */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE thumbnail_work_items
+               SET state = 'QUARANTINED',
+                   last_error = COALESCE(last_error, 'lease expired without completion'),
+                   leased_by = NULL, lease_until = NULL, updated_at = now()
+             WHERE state = 'PENDING' AND attempts >= :maxAttempts AND lease_until < now()
+            """, nativeQuery = true)
+    int quarantineAbandoned(@Param("maxAttempts") int maxAttempts);
+
+    /** Puts quarantined items ({@code id} null = all of them) back in the queue with fresh attempts. */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE thumbnail_work_items
+               SET state = 'PENDING', attempts = 0, next_attempt_at = NULL,
+                   leased_by = NULL, lease_until = NULL, updated_at = now()
+             WHERE state = 'QUARANTINED' AND (CAST(:id AS BIGINT) IS NULL OR id = :id)
+            """, nativeQuery = true)
+    int requeueQuarantined(@Param("id") Long id);
+
+    /** Items in {@code state} that have failed at least once, most recent failure first. */
+    List<ThumbnailWorkItem> findByStateAndLastErrorIsNotNullOrderByUpdatedAtDesc(String state, Pageable pageable);
+
+    long countByState(String state);
+
+    @Modifying
+    @Transactional
+    @Query(value = """
+            DELETE FROM thumbnail_work_items
+             WHERE state = 'DONE' AND updated_at < now() - make_interval(days => :days)
+            """, nativeQuery = true)
+    int pruneDone(@Param("days") int days);
+}
@@ -1,9 +1,61 @@
 package com.cathay.cdc.thumbnail.poc.repository;
 
 import com.cathay.cdc.thumbnail.poc.entity.User;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
+
+    /** One row per role of the user (one row with a null role when it has none). */
+    interface AccountRow {
+        Long getId();
+
+        String getUsername();
+
+        String getPassword();
+
+        boolean isEnabled();
+
+        String getRole();
+    }
+
+    interface SummaryRow {
+        Long getId();
+
+        String getUsername();
+
+        boolean isEnabled();
+
+        LocalDateTime getCreatedAt();
+    }
+
+    interface RoleRow {
+        Long getUserId();
+
+        String getRole();
+    }
+
+    /** Credentials and roles of {@code username} in a single join, without loading entities. */
+    @Query("""
+            SELECT u.id AS id, u.username AS username, u.password AS password, u.enabled AS enabled, r.name AS role
+              FROM User u LEFT JOIN u.roles r
+             WHERE u.username = :username
+            """)
+    List<AccountRow> findAccountRows(@Param("username") String username);
+
+    @Query(value = "SELECT u.id AS id, u.username AS username, u.enabled AS enabled, u.createdAt AS createdAt FROM User u",
+            countQuery = "SELECT COUNT(u) FROM User u")
+    Page<SummaryRow> findSummaries(Pageable pageable);
+
+    @Query("SELECT u.id AS userId, r.name AS role FROM User u JOIN u.roles r WHERE u.id IN :ids")
+    List<RoleRow> findRoleRows(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,30 @@
+package com.cathay.cdc.thumbnail.poc.service;
+
+import com.cathay.cdc.thumbnail.poc.storage.StoredBlob;
+
+/**
+ * Supplies the originals that changed since the last successful poll, so the scheduled
+ * thumbnail job does not have to rescan and re-check the whole bucket every run.
+ */
+public interface BlobChangeSource {
+
+    /**
+     * Returns the changed blobs. The iterable may be lazy and is consumed exactly once.
+     */
+    Iterable<StoredBlob> changes(String bucket);
+
+    /**
+     * Called after the returned changes have been handed to the pipeline; implementations
+     * persist their position here.
+     */
+    default void commit() {
+    }
+
+    /**
+     * Whether polling lists the shared bucket. Such sources are polled by one instance at a
+     * time; sources fed by this instance's own events are polled everywhere.
+     */
+    default boolean listsBucket() {
+        return true;
+    }
+}
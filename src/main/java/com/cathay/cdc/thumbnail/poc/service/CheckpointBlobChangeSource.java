@@ -0,0 +1,150 @@
+package com.cathay.cdc.thumbnail.poc.service;
+
+import com.cathay.cdc.thumbnail.poc.entity.IngestCheckpoint;
+import com.cathay.cdc.thumbnail.poc.repository.IngestCheckpointRepository;
+import com.cathay.cdc.thumbnail.poc.storage.BlobStore;
+import com.cathay.cdc.thumbnail.poc.storage.StoredBlob;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+/**
+ * Listing-based change source that only emits objects created after the persisted
+ * high-water mark (create time, then generation). Objects already marked as processed are
+ * dropped here, so they never cost an extra {@code storage.get}.
+ * <p>
+ * This still lists the whole bucket on every poll; only the per-object work is saved. Buckets
+ * written only through this service are better served by the {@code local} source.
+ * <p>
+ * The mark only advances to objects created before the poll started (less
+ * {@code thumbnail.ingest.clock-skew}). Listing is in name order, so an object created behind
+ * the cursor while a poll runs has a create time above that horizon and is picked up by the
+ * next poll instead of falling under the mark.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "thumbnail.ingest.source", havingValue = "checkpoint", matchIfMissing = true)
+public class CheckpointBlobChangeSource implements BlobChangeSource {
+
+    static final String CHECKPOINT_NAME = "thumbnail-ingest";
+
+    private final IngestCheckpointRepository checkpointRepository;
+    private final BlobStore blobStore;
+
+    @Value("${thumbnail.ingest.clock-skew:1m}")
+    private Duration clockSkew;
+
+    /** The poll handed out by the last {@link #changes}; {@link #commit} persists its mark. */
+    private volatile Poll lastPoll;
+
+    @Override
+    public Iterable<StoredBlob> changes(String bucket) {
+        IngestCheckpoint checkpoint = checkpointRepository.findById(CHECKPOINT_NAME).orElseGet(this::newCheckpoint);
+        Poll poll = new Poll(checkpoint.getLastCreateTime(), checkpoint.getLastGeneration(),
+                System.currentTimeMillis() - clockSkew.toMillis());
+        lastPoll = poll;
+        log.info("Polling changes in bucket {} after createTime={}, generation={}",
+                bucket, poll.committedCreateTime, poll.committedGeneration);
+        return () -> poll.filter(blobStore.listAll(bucket, null, 1000).iterator());
+    }
+
+    @Override
+    public void commit() {
+        Poll poll = lastPoll;
+        if (poll == null || !poll.advanced()) {
+            return;
+        }
+        IngestCheckpoint checkpoint = checkpointRepository.findById(CHECKPOINT_NAME).orElseGet(this::newCheckpoint);
+        checkpoint.setLastCreateTime(poll.seenCreateTime());
+        checkpoint.setLastGeneration(poll.seenGeneration());
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        checkpointRepository.save(checkpoint);
+        log.info("Ingest checkpoint advanced to createTime={}, generation={}", poll.seenCreateTime(), poll.seenGeneration());
+    }
+
+    private IngestCheckpoint newCheckpoint() {
+        IngestCheckpoint checkpoint = new IngestCheckpoint();
+        checkpoint.setName(CHECKPOINT_NAME);
+        return checkpoint;
+    }
+
+    /** Position of one poll: the committed mark it filters by and the mark it has reached. */
+    static final class Poll {
+        private final long committedCreateTime;
+        private final long committedGeneration;
+        /** Objects created at or after this are emitted but do not move the mark yet. */
+        private final long horizon;
+        private long seenCreateTime;
+        private long seenGeneration;
+
+        Poll(long committedCreateTime, long committedGeneration, long horizon) {
+            this.committedCreateTime = committedCreateTime;
+            this.committedGeneration = committedGeneration;
+            this.horizon = horizon;
+            this.seenCreateTime = committedCreateTime;
+            this.seenGeneration = committedGeneration;
+        }
+
+        boolean advanced() {
+            return seenCreateTime != committedCreateTime || seenGeneration != committedGeneration;
+        }
+
+        long seenCreateTime() {
+            return seenCreateTime;
+        }
+
+        long seenGeneration() {
+            return seenGeneration;
+        }
+
+        /** Whether {@code blob} is new to this poll; records it towards the next mark. */
+        boolean accept(StoredBlob blob) {
+            long createTime = Optional.ofNullable(blob.createTime()).orElse(0L);
+            long generation = blob.generation();
+            if (createTime < horizon
+                    && (createTime > seenCreateTime || (createTime == seenCreateTime && generation > seenGeneration))) {
+                seenCreateTime = createTime;
+                seenGeneration = generation;
+            }
+            boolean newer = createTime > committedCreateTime
+                    || (createTime == committedCreateTime && generation > committedGeneration);
+            return newer && !ThumbnailRecords.isMarked(blob);
+        }
+
+        Iterator<StoredBlob> filter(Iterator<StoredBlob> listing) {
+            return new Iterator<>() {
+                private StoredBlob next;
+
+                @Override
+                public boolean hasNext() {
+                    while (next == null && listing.hasNext()) {
+                        StoredBlob blob = listing.next();
+                        if (accept(blob)) {
+                            next = blob;
+                        }
+                    }
+                    return next != null;
+                }
+
+                @Override
+                public StoredBlob next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    StoredBlob blob = next;
+                    next = null;
+                    return blob;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.cathay.cdc.thumbnail.poc.service;
+
+import com.cathay.cdc.thumbnail.poc.configuration.ThumbnailProperties;
+import com.cathay.cdc.thumbnail.poc.configuration.ThumbnailProperties.Rendition;
+import com.cathay.cdc.thumbnail.poc.storage.BlobStore;
+import com.cathay.cdc.thumbnail.poc.storage.StoredBlob;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Content-addressed deduplication. Content is identified by the MD5 and size the object store
+ * reports, looked up through the {@code file_index}; renditions live at names derived from their
+ * original, so finding another original with the same content also finds its renditions.
+ */
+@Slf4j
+@Service
+public class ContentDedupService {
+
+    private final FileIndexService fileIndexService;
+    private final BlobStore blobStore;
+    private final ThumbnailProperties thumbnailProperties;
+
+    private final Counter renditionsReused;
+    private final Counter downloadBytesSaved;
+    private final Counter uploadsDeduplicated;
+    private final Counter uploadBytesSaved;
+
+    @Value("${thumbnail.dedup.enabled:true}")
+    private boolean renditionReuseEnabled;
+
+    @Value("${files.upload.dedup:false}")
+    private boolean uploadDedupEnabled;
+
+    public ContentDedupService(FileIndexService fileIndexService,
+                               BlobStore blobStore,
+                               ThumbnailProperties thumbnailProperties,
+                               MeterRegistry meterRegistry) {
+        this.fileIndexService = fileIndexService;
+        this.blobStore = blobStore;
+        this.thumbnailProperties = thumbnailProperties;
+        this.renditionsReused = Counter.builder("thumbnail.dedup.reused")
+                .description("Originals whose renditions were copied from identical content instead of rendered")
+                .register(meterRegistry);
+        this.downloadBytesSaved = Counter.builder("thumbnail.dedup.bytes.saved")
+                .description("Bytes not downloaded and decoded thanks to rendition reuse")
+                .tag("kind", "render")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.uploadsDeduplicated = Counter.builder("files.upload.deduplicated")
+                .description("Uploads skipped because identical content was already stored")
+                .register(meterRegistry);
+        this.uploadBytesSaved = Counter.builder("thumbnail.dedup.bytes.saved")
+                .description("Bytes not stored thanks to upload deduplication")
+                .tag("kind", "upload")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Current renditions of another original with the same content as {@code original}, keyed
+     * by profile name. Empty unless every configured profile can be reused.
+     */
+    public Map<String, StoredBlob> findReusableRenditions(StoredBlob original) {
+        if (!renditionReuseEnabled) {
+            return Map.of();
+        }
+        String signature = thumbnailProperties.renditionSignature();
+        for (String candidate : fileIndexService.findByContent(original.bucket(), original.md5(), original.size())) {
+            if (candidate.equals(original.name()) || thumbnailProperties.isRendition(candidate)) {
+                continue;
+            }
+            Map<String, StoredBlob> renditions = new HashMap<>();
+            for (Rendition rendition : thumbnailProperties.effectiveRenditions()) {
+                blobStore.get(original.bucket(), thumbnailProperties.renditionName(rendition, candidate))
+                        .filter(r -> ThumbnailRecords.isCurrentFor(r.metadata(), original, signature))
+                        .ifPresent(r -> renditions.put(rendition.getName(), r));
+            }
+            if (renditions.size() == thumbnailProperties.effectiveRenditions().size()) {
+                log.info("Renditions of {} can be reused for {} (identical content)", candidate, original.name());
+                return renditions;
+            }
+        }
+        return Map.of();
+    }
+
+    public void recordReuse(StoredBlob original) {
+        renditionsReused.increment();
+        downloadBytesSaved.increment(original.size());
+    }
+
+    public boolean isUploadDedupEnabled() {
+        return uploadDedupEnabled;
+    }
+
+    /**
+     * An already stored original with exactly the content of {@code file}, if upload
+     * deduplication is on. The file is hashed locally; multipart content is already on this host.
+     */
+    public Optional<StoredBlob> findStoredDuplicate(String bucket, MultipartFile file) throws IOException {
+        if (!uploadDedupEnabled) {
+            return Optional.empty();
+        }
+        String md5 = md5Of(file);
+        for (String candidate : fileIndexService.findByContent(bucket, md5, file.getSize())) {
+            if (thumbnailProperties.isRendition(candidate)) {
+                continue;
+            }
+            // the index may lag behind the bucket: confirm against the live object
+            Optional<StoredBlob> live = blobStore.get(bucket, candidate)
+                    .filter(blob -> md5.equals(blob.md5()) && blob.size() == file.getSize());
+            if (live.isPresent()) {
+                return live;
+            }
+        }
+        return Optional.empty();
+    }
+
+    public void recordUploadDedup(long bytes) {
+        uploadsDeduplicated.increment();
+        uploadBytesSaved.increment(bytes);
+    }
+
+    /** Base64 MD5, the same encoding GCS uses for {@code md5Hash}. */
+    private static String md5Of(MultipartFile file) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            byte[] chunk = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                digest.update(chunk, 0, read);
+            }
+            return Base64.getEncoder().encodeToString(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.cathay.cdc.thumbnail.poc.service;
+
+import com.cathay.cdc.thumbnail.poc.configuration.ThumbnailProperties.Rendition;
+import com.cathay.cdc.thumbnail.poc.exception.ImageTooLargeException;
+import com.cathay.cdc.thumbnail.poc.exception.ServiceBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.awt.Dimension;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Admission control for image decodes, shared by the thumbnail pipeline and on-demand renders.
+ * <p>
+ * Before decoding, a caller reserves what the decode will need from one heap budget
+ * ({@code thumbnail.decode.memory-budget}, default a quarter of the max heap). The estimate
+ * comes from the header: the subsampled raster (width x height x bytes per pixel) plus the
+ * rendition rasters made from it. Reservations queue in arrival order; one that cannot be
+ * admitted within {@code admission-timeout} fails as busy, and one larger than the whole budget
+ * is rejected outright. Budget, reservations and utilization are published as
+ * {@code thumbnail.decode.memory.*} gauges.
+ */
+@Slf4j
+@Component
+public class DecodeAdmission {
+
+    /** Permits are KiB, so a budget of several GB still fits a semaphore. */
+    private static final long UNIT = 1024;
+
+    private final long budgetBytes;
+    private final int totalPermits;
+    private final Duration timeout;
+    private final Semaphore budget;
+    private final Timer waitTimer;
+    private final Counter rejectedTooLarge;
+    private final Counter rejectedTimeout;
+
+    public DecodeAdmission(MeterRegistry meterRegistry,
+                           @Value("${thumbnail.decode.memory-budget:0}") long configuredBudget,
+                           @Value("${thumbnail.decode.admission-timeout:30s}") Duration timeout) {
+        this.budgetBytes = configuredBudget > 0 ? configuredBudget : Runtime.getRuntime().maxMemory() / 4;
+        this.timeout = timeout;
+        this.totalPermits = permitsFor(budgetBytes);
+        this.budget = new Semaphore(totalPermits, true);
+
+        this.waitTimer = Timer.builder("thumbnail.decode.admission.wait")
+                .description("Time decodes waited for memory budget")
+                .register(meterRegistry);
+        this.rejectedTooLarge = rejections(meterRegistry, "too_large");
+        this.rejectedTimeout = rejections(meterRegistry, "timeout");
+        Gauge.builder("thumbnail.decode.memory.budget", this, admission -> admission.budgetBytes)
+                .description("Heap budget for decoded images")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("thumbnail.decode.memory.reserved", this, DecodeAdmission::reservedBytes)
+                .description("Heap currently reserved by running decodes")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("thumbnail.decode.memory.utilization", this, admission -> (double) admission.reservedBytes() / admission.budgetBytes)
+                .description("Reserved share of the decode budget")
+                .register(meterRegistry);
+        Gauge.builder("thumbnail.decode.admission.waiting", budget, Semaphore::getQueueLength)
+                .description("Decodes waiting for memory budget")
+                .register(meterRegistry);
+        log.info("Decode admission: budget={} MB, timeout={}", budgetBytes >> 20, timeout);
+    }
+
+    /** A reservation; closing it returns the memory to the budget. */
+    public final class Permit implements AutoCloseable {
+        private final int permits;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(int permits) {
+            this.permits = permits;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                budget.release(permits);
+            }
+        }
+    }
+
+    /** Heap the decode of {@code plan} and the renditions drawn from it will hold at once. */
+    public long estimate(ImageDecoder.Plan plan, List<Rendition> renditions) {
+        long bytes = plan.decodedBytes();
+        for (Rendition rendition : renditions) {
+            Dimension scaled = ThumbnailRenderer.scaledSize(plan.header().width(), plan.header().height(), rendition);
+            // scaled ARGB raster plus one intermediate from the resize/crop
+            bytes += (long) scaled.width * scaled.height * 4 * 2;
+        }
+        return bytes;
+    }
+
+    /**
+     * Reserves {@code bytes}, waiting up to {@code admission-timeout} for running decodes to
+     * finish. Throws {@link ImageTooLargeException} if the reservation can never fit and
+     * {@link ServiceBusyException} if it did not fit in time.
+     */
+    public Permit admit(String name, long bytes) throws InterruptedException {
+        int permits = permitsFor(bytes);
+        if (permits > totalPermits) {
+            rejectedTooLarge.increment();
+            throw new ImageTooLargeException("Decoding " + name + " needs about " + (bytes >> 20)
+                    + " MB, more than the whole decode budget of " + (budgetBytes >> 20) + " MB");
+        }
+        long start = System.nanoTime();
+        boolean acquired = budget.tryAcquire(permits, timeout.toMillis(), TimeUnit.MILLISECONDS);
+        waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (!acquired) {
+            rejectedTimeout.increment();
+            throw new ServiceBusyException("No decode memory for " + name + " within " + timeout
+                    + " (" + (bytes >> 20) + " MB requested)");
+        }
+        log.debug("Admitted decode of {}: {} KB reserved", name, (long) permits);
+        return new Permit(permits);
+    }
+
+    public long budgetBytes() {
+        return budgetBytes;
+    }
+
+    public long reservedBytes() {
+        return (long) (totalPermits - budget.availablePermits()) * UNIT;
+    }
+
+    private static int permitsFor(long bytes) {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(1, (bytes + UNIT - 1) / UNIT));
+    }
+
+    private static Counter rejections(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("thumbnail.decode.admission.rejected")
+                .description("Decodes refused for lack of memory budget")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
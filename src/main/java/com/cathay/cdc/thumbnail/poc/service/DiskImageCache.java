@@ -0,0 +1,140 @@
+package com.cathay.cdc.thumbnail.poc.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Second-tier cache for rendered thumbnails on local disk. Entries are written atomically
+ * (temp file + move) and the oldest files are removed once the directory exceeds its byte budget.
+ */
+@Slf4j
+@Component
+public class DiskImageCache {
+
+    @Value("${thumbnail.cache.disk.dir:${java.io.tmpdir}/thumbnail-cache}")
+    private String directoryPath;
+
+    @Value("${thumbnail.cache.disk.max-bytes:536870912}") // 512 MB
+    private long maxBytes;
+
+    private final AtomicLong usedBytes = new AtomicLong();
+    /** A lock rather than {@code synchronized}: trimming does file I/O, which would pin a virtual thread. */
+    private final ReentrantLock trimLock = new ReentrantLock();
+    private Path directory;
+
+    @PostConstruct
+    private void init() throws IOException {
+        directory = Paths.get(directoryPath);
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            usedBytes.set(files.mapToLong(DiskImageCache::sizeOf).sum());
+        }
+        log.info("Disk image cache at {} ({} bytes used, limit {})", directory, usedBytes.get(), maxBytes);
+    }
+
+    public Optional<byte[]> get(String key) {
+        Path file = fileOf(key);
+        try {
+            byte[] content = Files.readAllBytes(file);
+            // touch so trimming keeps recently used entries
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return Optional.of(content);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            log.warn("Failed to read disk cache entry {}: {}", file, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    public void put(String key, byte[] content) {
+        Path file = fileOf(key);
+        try {
+            Path tmp = Files.createTempFile(directory, "put-", ".tmp");
+            Files.write(tmp, content);
+            long previous = sizeOf(file);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (usedBytes.addAndGet(content.length - previous) > maxBytes) {
+                trim();
+            }
+        } catch (IOException e) {
+            log.warn("Failed to write disk cache entry {}: {}", file, e.getMessage());
+        }
+    }
+
+    private void trim() {
+        // one trim at a time; writers arriving meanwhile leave it to the running one
+        if (!trimLock.tryLock()) {
+            return;
+        }
+        try {
+            if (usedBytes.get() > maxBytes) {
+                deleteOldest(maxBytes * 9 / 10);
+            }
+        } finally {
+            trimLock.unlock();
+        }
+    }
+
+    private void deleteOldest(long target) {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> oldestFirst = files
+                    .filter(p -> !p.getFileName().toString().endsWith(".tmp"))
+                    .sorted(Comparator.comparing(DiskImageCache::lastModified))
+                    .toList();
+            for (Path file : oldestFirst) {
+                if (usedBytes.get() <= target) {
+                    break;
+                }
+                long size = sizeOf(file);
+                if (Files.deleteIfExists(file)) {
+                    usedBytes.addAndGet(-size);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to trim disk cache {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private Path fileOf(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return directory.resolve(HexFormat.of().formatHex(digest));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class).lastModifiedTime().toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
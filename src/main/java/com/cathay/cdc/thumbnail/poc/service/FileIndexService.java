@@ -0,0 +1,232 @@
+package com.cathay.cdc.thumbnail.poc.service;
+
+import com.cathay.cdc.thumbnail.poc.dto.FileIndexRebuiltEvent;
+import com.cathay.cdc.thumbnail.poc.dto.FileIndexedEvent;
+import com.cathay.cdc.thumbnail.poc.dto.FileMetadata;
+import com.cathay.cdc.thumbnail.poc.dto.FilePage;
+import com.cathay.cdc.thumbnail.poc.dto.FileQuery;
+import com.cathay.cdc.thumbnail.poc.entity.FileIndexEntry;
+import com.cathay.cdc.thumbnail.poc.libs.TimeUtil;
+import com.cathay.cdc.thumbnail.poc.repository.FileIndexRepository;
+import com.cathay.cdc.thumbnail.poc.storage.BlobStore;
+import com.cathay.cdc.thumbnail.poc.storage.StoredBlob;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Maintains the {@code file_index} table and serves cursor-paginated listings from it.
+ * <p>
+ * Pages are ordered by {@code (created_at DESC, id DESC)} and the cursor is the sort key of the
+ * last row returned, so every page is a single index range scan no matter how deep it is.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FileIndexService {
+
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "createdAt")
+            .and(Sort.by(Sort.Direction.DESC, "id"));
+
+    private final FileIndexRepository fileIndexRepository;
+    private final BlobStore blobStore;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${gcp.bucket-name}")
+    private String bucketName;
+
+    @Value("${files.index.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+
+    @Value("${files.list.max-limit:1000}")
+    private int maxLimit;
+
+    /** A listed file together with the cursor that continues the listing right after it. */
+    public record Row(FileMetadata file, String cursor) {
+    }
+
+    /** Rows of one page and whether more follow. */
+    public record Rows(List<Row> rows, boolean hasMore) {
+        public FilePage toPage() {
+            return new FilePage(rows.stream().map(Row::file).toList(),
+                    hasMore && !rows.isEmpty() ? rows.get(rows.size() - 1).cursor() : null);
+        }
+    }
+
+    /**
+     * Records {@code blob} in the index and publishes a {@link FileIndexedEvent} so cached
+     * listings can apply the change. Failures are logged and swallowed: the object itself was
+     * written, and the next rebuild picks it up.
+     */
+    public void index(StoredBlob blob) {
+        try {
+            LocalDateTime indexedAt = LocalDateTime.now(ZoneOffset.UTC);
+            LocalDateTime createdAt = createdAtOf(blob, indexedAt);
+            Long id = fileIndexRepository.upsert(blob.bucket(), blob.name(), blob.contentType(), blob.size(),
+                    blob.generation(), blob.md5(), createdAt, indexedAt);
+            if (id != null) {
+                FileMetadata file = toMetadata(blob.bucket(), blob.name(), blob.contentType(), blob.size(), createdAt);
+                eventPublisher.publishEvent(new FileIndexedEvent(blob.bucket(), file, new Cursor(createdAt, id).encode()));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to index {}/{}: {}", blob.bucket(), blob.name(), e.getMessage());
+        }
+    }
+
+    public FilePage list(String bucket, FileQuery query) {
+        return listRows(bucket, query).toPage();
+    }
+
+    public Rows listRows(String bucket, FileQuery query) {
+        if (query.limit() < 1 || query.limit() > maxLimit) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxLimit);
+        }
+        Specification<FileIndexEntry> spec = filter(bucket, query);
+        if (query.cursor() != null) {
+            spec = spec.and(after(Cursor.decode(query.cursor())));
+        }
+
+        // one extra row tells us whether there is a next page without a count query
+        List<FileIndexEntry> rows = fileIndexRepository.findBy(spec,
+                q -> q.sortBy(NEWEST_FIRST).limit(query.limit() + 1).all());
+
+        boolean hasMore = rows.size() > query.limit();
+        List<FileIndexEntry> page = hasMore ? rows.subList(0, query.limit()) : rows;
+        return new Rows(page.stream()
+                .map(entry -> new Row(toMetadata(entry.getBucket(), entry.getName(), entry.getContentType(),
+                        entry.getSize(), entry.getCreatedAt()), Cursor.of(entry).encode()))
+                .toList(), hasMore);
+    }
+
+    /**
+     * Re-lists the bucket into the index and drops rows for objects that no longer exist.
+     * Returns the number of objects indexed.
+     */
+    public long rebuild(String bucket) {
+        LocalDateTime startedAt = LocalDateTime.now(ZoneOffset.UTC);
+        long count = 0;
+        for (StoredBlob blob : blobStore.listAll(bucket, null, 1000)) {
+            upsert(blob, startedAt);
+            count++;
+        }
+        int removed = fileIndexRepository.deleteByBucketIndexedBefore(bucket, startedAt);
+        log.info("File index rebuilt for bucket {}: {} objects indexed, {} stale rows removed", bucket, count, removed);
+        eventPublisher.publishEvent(new FileIndexRebuiltEvent(bucket));
+        return count;
+    }
+
+    /** Names of indexed objects with exactly this content (MD5 and size), oldest first. */
+    public List<String> findByContent(String bucket, String md5, long size) {
+        if (md5 == null) {
+            return List.of();
+        }
+        return fileIndexRepository.findTop10ByBucketAndMd5AndSizeOrderByIdAsc(bucket, md5, size).stream()
+                .map(FileIndexEntry::getName)
+                .toList();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (!backfillOnStartup || fileIndexRepository.existsByBucket(bucketName)) {
+            return;
+        }
+        log.info("File index for bucket {} is empty, backfilling in the background", bucketName);
+        Thread.ofVirtual().name("file-index-backfill").start(() -> {
+            try {
+                rebuild(bucketName);
+            } catch (RuntimeException e) {
+                log.error("File index backfill failed: {}", e.getMessage(), e);
+            }
+        });
+    }
+
+    private void upsert(StoredBlob blob, LocalDateTime indexedAt) {
+        fileIndexRepository.upsert(blob.bucket(), blob.name(), blob.contentType(), blob.size(),
+                blob.generation(), blob.md5(), createdAtOf(blob, indexedAt), indexedAt);
+    }
+
+    private static LocalDateTime createdAtOf(StoredBlob blob, LocalDateTime fallback) {
+        return blob.createTime() != null ? TimeUtil.toLocalDateTime(blob.createTime()) : fallback;
+    }
+
+    private static Specification<FileIndexEntry> filter(String bucket, FileQuery query) {
+        return (root, cq, cb) -> {
+            var predicate = cb.equal(root.get("bucket"), bucket);
+            if (query.prefix() != null && !query.prefix().isEmpty()) {
+                predicate = cb.and(predicate, cb.like(root.get("name"), escapeLike(query.prefix()) + "%", '\\'));
+            }
+            if (query.since() != null) {
+                predicate = cb.and(predicate, cb.greaterThanOrEqualTo(root.get("createdAt"), query.since()));
+            }
+            if (query.contentType() != null && !query.contentType().isEmpty()) {
+                String type = query.contentType();
+                predicate = cb.and(predicate, type.endsWith("/*")
+                        ? cb.like(root.get("contentType"), escapeLike(type.substring(0, type.length() - 1)) + "%", '\\')
+                        : cb.equal(root.get("contentType"), type));
+            }
+            return predicate;
+        };
+    }
+
+    private static Specification<FileIndexEntry> after(Cursor cursor) {
+        return (root, cq, cb) -> cb.or(
+                cb.lessThan(root.get("createdAt"), cursor.createdAt()),
+                cb.and(cb.equal(root.get("createdAt"), cursor.createdAt()), cb.lessThan(root.get("id"), cursor.id())));
+    }
+
+    /** Id embedded in a cursor produced by this service. */
+    static long cursorId(String cursor) {
+        return Cursor.decode(cursor).id();
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static FileMetadata toMetadata(String bucket, String name, String contentType, long size,
+                                           LocalDateTime createdAt) {
+        return FileMetadata.builder()
+                .name(name)
+                .bucket(bucket)
+                .contentType(contentType)
+                .size(size)
+                .url(FileUrlService.publicUrl(bucket, name))
+                .createdAt(createdAt)
+                .build();
+    }
+
+    /** Sort key of the last row of a page, encoded as URL-safe base64 of {@code epochMillis:id}. */
+    private record Cursor(LocalDateTime createdAt, long id) {
+
+        static Cursor of(FileIndexEntry entry) {
+            return new Cursor(entry.getCreatedAt(), entry.getId());
+        }
+
+        static Cursor decode(String value) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8).split(":");
+                return new Cursor(TimeUtil.toLocalDateTime(Long.parseLong(parts[0])), Long.parseLong(parts[1]));
+            } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+
+        String encode() {
+            long millis = createdAt.toInstant(ZoneOffset.UTC).toEpochMilli();
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((millis + ":" + id).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
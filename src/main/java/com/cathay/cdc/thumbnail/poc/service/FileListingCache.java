@@ -0,0 +1,164 @@
+package com.cathay.cdc.thumbnail.poc.service;
+
+import com.cathay.cdc.thumbnail.poc.dto.FileIndexRebuiltEvent;
+import com.cathay.cdc.thumbnail.poc.dto.FileIndexedEvent;
+import com.cathay.cdc.thumbnail.poc.dto.FileMetadata;
+import com.cathay.cdc.thumbnail.poc.dto.FilePage;
+import com.cathay.cdc.thumbnail.poc.dto.FileQuery;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.context.ContextExecutorService;
+import io.micrometer.context.ContextSnapshotFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Cache of first listing pages ({@code listFilesCache}), one entry per bucket and query.
+ * <p>
+ * Entries are kept coherent incrementally: every {@link FileIndexedEvent} is applied as a delta
+ * to the cached pages whose filters it matches, instead of throwing the listing away. Entries are
+ * also refreshed from the index in the background once they are {@code refresh-after} old, so
+ * readers keep getting the cached page while the reload runs. Deeper pages are not cached; they
+ * are single keyset scans on the index.
+ * <p>
+ * Loads run on virtual threads outside the cache's locks, so a reader waiting for a page parks
+ * instead of holding a map bin (and pinning its carrier) for the length of a query.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FileListingCache {
+
+    public static final String CACHE_NAME = "listFilesCache";
+
+    /** Same order as the index: newest first, then by cursor (which embeds the id). */
+    private static final Comparator<FileIndexService.Row> NEWEST_FIRST = Comparator
+            .comparing((FileIndexService.Row row) -> row.file().getCreatedAt(), Comparator.reverseOrder())
+            .thenComparing(FileIndexService.Row::cursor, Comparator.comparingLong(FileListingCache::idOf).reversed());
+
+    private final FileIndexService fileIndexService;
+
+    @Value("${files.list.cache.max-entries:500}")
+    private long maxEntries;
+
+    @Value("${files.list.cache.refresh-after:1m}")
+    private Duration refreshAfter;
+
+    @Value("${files.list.cache.expire-after:10m}")
+    private Duration expireAfter;
+
+    private ExecutorService loadExecutor;
+    private AsyncLoadingCache<Key, FileIndexService.Rows> cache;
+
+    record Key(String bucket, FileQuery query) {
+    }
+
+    @PostConstruct
+    private void init() {
+        this.loadExecutor = ContextExecutorService.wrap(
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("file-listing-", 0).factory()),
+                () -> ContextSnapshotFactory.builder().build().captureAll());
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .refreshAfterWrite(refreshAfter)
+                .expireAfterWrite(expireAfter)
+                .executor(loadExecutor)
+                .recordStats()
+                .buildAsync(key -> fileIndexService.listRows(key.bucket(), key.query()));
+    }
+
+    @PreDestroy
+    private void shutdown() {
+        loadExecutor.shutdown();
+    }
+
+    public FilePage firstPage(String bucket, FileQuery query) {
+        try {
+            return cache.get(new Key(bucket, query)).join().toPage();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /** The underlying cache, for metrics. */
+    public AsyncLoadingCache<?, ?> nativeCache() {
+        return cache;
+    }
+
+    @EventListener
+    public void onFileIndexed(FileIndexedEvent event) {
+        FileIndexService.Row row = new FileIndexService.Row(event.file(), event.cursor());
+        for (Key key : cache.asMap().keySet()) {
+            if (key.bucket().equals(event.bucket()) && matches(key.query(), event.file())) {
+                // a page still loading gets the delta once it arrives; applying it twice is harmless
+                cache.asMap().computeIfPresent(key, (k, rows) -> rows.thenApply(r -> apply(r, row, k.query().limit())));
+            }
+        }
+    }
+
+    @EventListener
+    public void onIndexRebuilt(FileIndexRebuiltEvent event) {
+        // deletions are not tracked as deltas; drop this bucket's pages
+        cache.asMap().keySet().removeIf(key -> key.bucket().equals(event.bucket()));
+    }
+
+    /**
+     * Inserts or moves {@code row} within a cached first page. A row that sorts after the last
+     * cached row of a page that has more rows belongs to a later page and is left out.
+     */
+    private static FileIndexService.Rows apply(FileIndexService.Rows cached, FileIndexService.Row row, int limit) {
+        List<FileIndexService.Row> rows = new ArrayList<>(cached.rows().size() + 1);
+        for (FileIndexService.Row existing : cached.rows()) {
+            if (!existing.file().getName().equals(row.file().getName())) {
+                rows.add(existing);
+            }
+        }
+        boolean hasMore = cached.hasMore();
+        if (!hasMore || rows.isEmpty() || NEWEST_FIRST.compare(row, rows.get(rows.size() - 1)) < 0) {
+            rows.add(row);
+            rows.sort(NEWEST_FIRST);
+        }
+        if (rows.size() > limit) {
+            rows = rows.subList(0, limit);
+            hasMore = true;
+        }
+        return new FileIndexService.Rows(List.copyOf(rows), hasMore);
+    }
+
+    private static boolean matches(FileQuery query, FileMetadata file) {
+        if (query.prefix() != null && !file.getName().startsWith(query.prefix())) {
+            return false;
+        }
+        LocalDateTime since = query.since();
+        if (since != null && file.getCreatedAt().isBefore(since)) {
+            return false;
+        }
+        String type = query.contentType();
+        if (type != null && !type.isEmpty()) {
+            String actual = file.getContentType() == null ? "" : file.getContentType();
+            return type.endsWith("/*") ? actual.startsWith(type.substring(0, type.length() - 1)) : actual.equals(type);
+        }
+        return true;
+    }
+
+    private static long idOf(String cursor) {
+        return FileIndexService.cursorId(cursor);
+    }
+}
@@ -0,0 +1,112 @@
+package com.cathay.cdc.thumbnail.poc.service;
+
+import com.cathay.cdc.thumbnail.poc.dto.FileMetadata;
+import com.cathay.cdc.thumbnail.poc.dto.FilePage;
+import com.cathay.cdc.thumbnail.poc.storage.BlobStore;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * URLs handed out for stored objects. In {@code PUBLIC} mode these are plain
+ * {@code storage.googleapis.com} links, which only work for public buckets. In {@code SIGNED}
+ * mode they are signed URLs, so clients fetch private objects straight from storage.
+ * <p>
+ * Signing is cached ({@code signedUrlCache}): a URL is signed for {@code signed-ttl} and handed
+ * out again until less than {@code min-remaining} of that is left.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FileUrlService {
+
+    public static final String CACHE_NAME = "signedUrlCache";
+
+    public enum Mode {
+        PUBLIC,
+        SIGNED
+    }
+
+    private final BlobStore blobStore;
+
+    @Value("${files.url.mode:PUBLIC}")
+    private Mode mode;
+
+    @Value("${files.url.signed-ttl:1h}")
+    private Duration signedTtl;
+
+    @Value("${files.url.min-remaining:15m}")
+    private Duration minRemaining;
+
+    @Value("${files.url.cache.max-entries:10000}")
+    private long maxEntries;
+
+    private Cache<ObjectKey, String> signedUrls;
+
+    record ObjectKey(String bucket, String name) {
+    }
+
+    @PostConstruct
+    private void init() {
+        if (minRemaining.compareTo(signedTtl) >= 0) {
+            throw new IllegalStateException("files.url.min-remaining must be shorter than files.url.signed-ttl");
+        }
+        this.signedUrls = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(signedTtl.minus(minRemaining))
+                .recordStats()
+                .build();
+        log.info("File URLs: mode={}, signedTtl={}, reused for {}", mode, signedTtl, signedTtl.minus(minRemaining));
+    }
+
+    public boolean isSigned() {
+        return mode == Mode.SIGNED;
+    }
+
+    public String urlOf(String bucket, String name) {
+        if (!isSigned()) {
+            return publicUrl(bucket, name);
+        }
+        // signed outside the cache's compute: signing may call IAM, and blocking inside a
+        // ConcurrentHashMap bin lock pins a virtual thread. A racing duplicate signature is harmless.
+        ObjectKey key = new ObjectKey(bucket, name);
+        String url = signedUrls.getIfPresent(key);
+        if (url == null) {
+            url = blobStore.signUrl(bucket, name, signedTtl);
+            signedUrls.put(key, url);
+        }
+        return url;
+    }
+
+    /** {@code file} with its URL in the configured form; the argument itself is not modified. */
+    public FileMetadata withUrl(FileMetadata file) {
+        if (!isSigned() || file == null) {
+            return file;
+        }
+        return file.toBuilder().url(urlOf(file.getBucket(), file.getName())).build();
+    }
+
+    public List<FileMetadata> withUrls(List<FileMetadata> files) {
+        return isSigned() ? files.stream().map(this::withUrl).toList() : files;
+    }
+
+    public FilePage withUrls(FilePage page) {
+        return isSigned() ? new FilePage(withUrls(page.items()), page.nextCursor()) : page;
+    }
+
+    /** The underlying cache, for metrics. */
+    public Cache<?, ?> nativeCache() {
+        return signedUrls;
+    }
+
+    public static String publicUrl(String bucket, String name) {
+        return String.format("https://storage.googleapis.com/%s/%s", bucket, name);
+    }
+}
@@ -1,115 +1,186 @@
 package com.cathay.cdc.thumbnail.poc.service;
 
+import com.cathay.cdc.thumbnail.poc.dto.BlobUploadedEvent;
 import com.cathay.cdc.thumbnail.poc.dto.FileMetadata;
+import com.cathay.cdc.thumbnail.poc.dto.FilePage;
+import com.cathay.cdc.thumbnail.poc.dto.FileQuery;
+import com.cathay.cdc.thumbnail.poc.dto.UploadResult;
+import com.cathay.cdc.thumbnail.poc.exception.NotFoundException;
 import com.cathay.cdc.thumbnail.poc.libs.TimeUtil;
-import com.google.auth.oauth2.ServiceAccountCredentials;
-import com.google.cloud.storage.*;
+import com.cathay.cdc.thumbnail.poc.storage.BlobStore;
+import com.cathay.cdc.thumbnail.poc.storage.StoredBlob;
+import io.micrometer.context.ContextExecutorService;
+import io.micrometer.context.ContextSnapshotFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
-import org.springframework.core.io.Resource;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import javax.annotation.PostConstruct;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
+import java.util.Optional;
+import java.util.concurrent.*;
 
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class GcpStorageService {
 
-    @Value("${gcp.project-id}")
-    private String projectId;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BlobStore blobStore;
+    private final FileIndexService fileIndexService;
+    private final FileListingCache fileListingCache;
+    private final ContentDedupService dedupService;
+    private final FileUrlService fileUrlService;
+    private final MeterRegistry meterRegistry;
+
     @Value("${gcp.bucket-name}")
     private String bucketName;
-    @Value("${gcp.credentials.path}")
-    private Resource credentialsResource;
-    private Storage storage;
+    @Value("${gcp.upload.resumable-threshold:5242880}") // 5 MB
+    private long resumableThreshold;
+    @Value("${gcp.upload.max-concurrency:4}")
+    private int uploadMaxConcurrency;
 
-    @PostConstruct
-    private void init() throws IOException {
-        log.info("Initializing GCP Storage client for project: {}", projectId);
-        this.storage = StorageOptions.newBuilder()
-                .setProjectId(projectId)
-                .setCredentials(ServiceAccountCredentials.fromStream(credentialsResource.getInputStream()))
-                .build()
-                .getService();
-        log.info("GCP Storage initialized successfully with bucket: {}", bucketName);
-        log.debug("Loaded GCP credentials: {}", storage.getOptions().getCredentials().toString());
+    /**
+     * One page of the listing, served from the metadata index rather than the bucket. First
+     * pages come from {@link FileListingCache}; deeper pages are cheap keyset scans.
+     */
+    public FilePage listFiles(String bucketName, FileQuery query) {
+        FilePage page = query.cursor() == null
+                ? fileListingCache.firstPage(bucketName, query)
+                : fileIndexService.list(bucketName, query);
+        log.info("Listed {} files in bucket {} (prefix={}, more={})",
+                page.items().size(), bucketName, query.prefix(), page.nextCursor() != null);
+        // cached pages hold public URLs; signing happens per response, itself cached
+        return fileUrlService.withUrls(page);
     }
 
-    @Cacheable(value = "listFilesCache", key = "#bucketName")
-    public List<FileMetadata> listFiles(String bucketName) {
-        log.info("Listing files in bucket: {}", bucketName);
-        Bucket bucket = storage.get(bucketName);
-
-        if(bucket == null) {
-            log.error("Bucket not found: {}", bucketName);
-            throw new RuntimeException("Bucket not found: " + bucketName);
+    /**
+     * Uploads the files of one request concurrently (at most {@code gcp.upload.max-concurrency}
+     * at a time) and streams each one to storage in chunks. A failed file is reported in its
+     * {@link UploadResult} and does not abort the rest of the batch.
+     */
+    public List<UploadResult> uploadMultipartFiles(String bucketName, List<MultipartFile> files) {
+        Semaphore permits = new Semaphore(uploadMaxConcurrency);
+        List<Future<UploadResult>> futures = new ArrayList<>(files.size());
+        try (ExecutorService executor = ContextExecutorService.wrap(
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("file-upload-", 0).factory()),
+                () -> ContextSnapshotFactory.builder().build().captureAll())) {
+            for (MultipartFile file : files) {
+                futures.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return uploadFile(bucketName, file);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
         }
 
-        List<FileMetadata> fileMetadataList = StreamSupport
-                .stream(bucket.list().iterateAll().spliterator(), false)
-                .map(blob -> {
-                    FileMetadata metadata = FileMetadata.builder()
-                            .name(blob.getName())
-                            .url(String.format("https://storage.googleapis.com/%s/%s", bucketName, blob.getName()))
-                            .createdAt(TimeUtil.toLocalDateTime(blob.getCreateTime()))
-                            .build();
-                    log.debug("Found file: {}", metadata);
-                    return metadata;
-                })
-                // sort by createdAt DESC
-                .sorted(Comparator.comparing(FileMetadata::getCreatedAt).reversed())
-                .collect(Collectors.toList());
-        log.info("Total files found in bucket {}: {}", bucketName, fileMetadataList.size());
-        return fileMetadataList;
+        List<UploadResult> results = new ArrayList<>(futures.size());
+        for (int i = 0; i < futures.size(); i++) {
+            results.add(resultOf(futures.get(i), files.get(i).getOriginalFilename()));
+        }
+        return results;
     }
 
-    @CacheEvict(value = "listFilesCache", key = "#bucketName") // clear cache for this bucket
-    public List<FileMetadata> uploadMultipartFiles(String bucketName, List<MultipartFile> files) {
-        List<FileMetadata> metadataList = new ArrayList<>();
-        for (MultipartFile file : files) {
-            String objectName = file.getOriginalFilename();
-            try {
-                BlobId blobId = BlobId.of(bucketName, objectName);
-                BlobInfo blobInfo = BlobInfo.newBuilder(blobId)
-                        .setContentType(file.getContentType())
-                        .build();
-                storage.create(blobInfo, file.getBytes());
-
-                String publicUrl = String.format("https://storage.googleapis.com/%s/%s", bucketName, objectName);
+    private UploadResult uploadFile(String bucketName, MultipartFile file) {
+        String objectName = file.getOriginalFilename();
+        try {
+            Optional<StoredBlob> duplicate = dedupService.findStoredDuplicate(bucketName, file);
+            if (duplicate.isPresent()) {
+                return duplicateResult(objectName, duplicate.get(), file.getSize());
+            }
 
-                FileMetadata fileMetadata = FileMetadata.builder()
-                        .name(file.getName())
-                        .url(publicUrl)
-                        .createdAt(LocalDateTime.now())
-                        .build();
-                metadataList.add(fileMetadata);
-                log.info("File uploaded: {} -> {}", file.getOriginalFilename(), publicUrl);
-            } catch (IOException e) {
-                log.error("Failed to upload file: {}", file.getOriginalFilename(), e);
-                throw new RuntimeException("Failed to upload file: " + e.getMessage(), e);
+            StoredBlob stored;
+            if (file.getSize() < resumableThreshold) {
+                // small enough for a single-request upload
+                stored = blobStore.put(bucketName, objectName, file.getContentType(), file.getBytes());
+            } else {
+                try (InputStream in = file.getInputStream()) {
+                    stored = blobStore.put(bucketName, objectName, file.getContentType(), in);
+                }
             }
+            fileIndexService.index(stored);
+            meterRegistry.summary("files.upload.size").record(stored.size());
+            eventPublisher.publishEvent(new BlobUploadedEvent(bucketName, objectName));
+
+            log.info("File uploaded: {} ({} bytes)", objectName, stored.size());
+            return UploadResult.builder()
+                    .fileName(objectName)
+                    .success(true)
+                    .file(FileMetadata.builder()
+                            .name(objectName)
+                            .bucket(bucketName)
+                            .contentType(file.getContentType())
+                            .size(file.getSize())
+                            .url(fileUrlService.urlOf(bucketName, objectName))
+                            .createdAt(LocalDateTime.now())
+                            .build())
+                    .build();
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to upload file: {}", objectName, e);
+            return UploadResult.builder()
+                    .fileName(objectName)
+                    .success(false)
+                    .error("Failed to upload file: " + e.getMessage())
+                    .build();
         }
-        return metadataList;
     }
 
-    public byte[] downloadFile(String bucketName, String objectName) {
-        log.info("Downloading file: {} from bucket: {}", objectName, bucketName);
-        Blob blob = storage.get(bucketName, objectName);
-        if (blob == null) {
-            log.error("File not found in bucket {}: {}", bucketName, objectName);
-            throw new RuntimeException("File not found: " + objectName);
+    /** Identical content is already in the bucket; nothing is stored and the existing object is returned. */
+    private UploadResult duplicateResult(String objectName, StoredBlob existing, long size) {
+        dedupService.recordUploadDedup(size);
+        log.info("Upload of {} skipped, identical content already stored as {}", objectName, existing.name());
+        return UploadResult.builder()
+                .fileName(objectName)
+                .success(true)
+                .duplicateOf(existing.name())
+                .file(FileMetadata.builder()
+                        .name(existing.name())
+                        .bucket(existing.bucket())
+                        .contentType(existing.contentType())
+                        .size(existing.size())
+                        .url(fileUrlService.urlOf(existing.bucket(), existing.name()))
+                        .createdAt(TimeUtil.toLocalDateTime(existing.createTime()))
+                        .build())
+                .build();
+    }
+
+    private UploadResult resultOf(Future<UploadResult> future, String fileName) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return UploadResult.builder().fileName(fileName).success(false).error("Upload interrupted").build();
+        } catch (ExecutionException e) {
+            log.error("Failed to upload file: {}", fileName, e.getCause());
+            return UploadResult.builder().fileName(fileName).success(false)
+                    .error("Failed to upload file: " + e.getCause().getMessage()).build();
         }
-        log.info("File downloaded successfully: {}", objectName);
-        return blob.getContent();
+    }
+
+    public StoredBlob getFile(String bucketName, String objectName) {
+        return blobStore.get(bucketName, objectName).orElseThrow(() -> {
+            log.error("File not found in bucket {}: {}", bucketName, objectName);
+            return new NotFoundException("File not found: " + objectName);
+        });
+    }
+
+    /**
+     * Copies {@code length} bytes starting at {@code offset} of the given blob generation to
+     * {@code out}, one chunk at a time, so the object is never held in memory as a whole.
+     */
+    public void streamFile(StoredBlob blob, long offset, long length, OutputStream out) throws IOException {
+        log.info("Streaming file: {} bytes={}-{}", blob.name(), offset, offset + length - 1);
+        blobStore.read(blob, offset, length, out);
     }
 }
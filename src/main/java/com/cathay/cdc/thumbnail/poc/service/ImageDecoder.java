@@ -0,0 +1,174 @@
+package com.cathay.cdc.thumbnail.poc.service;
+
+import com.cathay.cdc.thumbnail.poc.configuration.ThumbnailProperties.Rendition;
+import com.cathay.cdc.thumbnail.poc.exception.ImageTooLargeException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.SampleModel;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Header-first image decoding. The dimensions are read before any pixel data, then the image
+ * is decoded with {@link ImageReadParam#setSourceSubsampling} straight down to about
+ * {@code oversample} times the largest rendition, so a 24 MP original never materializes as a
+ * full-size {@link BufferedImage} just to become a 150 px thumbnail.
+ */
+@Slf4j
+@Component
+public class ImageDecoder {
+
+    public enum OversizePolicy {
+        /** Fail inputs above {@code max-pixels}. */
+        REJECT,
+        /** Decode inputs above {@code max-pixels} with enough subsampling to stay under it. */
+        SUBSAMPLE
+    }
+
+    @Value("${thumbnail.decode.subsampling-enabled:true}")
+    private boolean subsamplingEnabled;
+
+    @Value("${thumbnail.decode.oversample:2}")
+    private int oversample;
+
+    @Value("${thumbnail.decode.max-pixels:50000000}")
+    private long maxPixels;
+
+    @Value("${thumbnail.decode.oversize-policy:SUBSAMPLE}")
+    private OversizePolicy oversizePolicy;
+
+    /**
+     * @param width       of the source as stored
+     * @param height      of the source as stored
+     * @param subsampling step used while decoding (1 = full resolution)
+     */
+    public record Decoded(BufferedImage image, String format, int width, int height, int subsampling) {
+    }
+
+    /** Image dimensions and format from the header only. */
+    public record Header(String format, int width, int height) {
+        public long pixels() {
+            return (long) width * height;
+        }
+    }
+
+    /**
+     * How {@link #decode} would read an image, worked out from its header.
+     *
+     * @param bytesPerPixel storage of one decoded pixel: bands times sample size
+     */
+    public record Plan(Header header, int subsampling, int bytesPerPixel) {
+        public long decodedBytes() {
+            long width = (header.width() + subsampling - 1) / subsampling;
+            long height = (header.height() + subsampling - 1) / subsampling;
+            return width * height * bytesPerPixel;
+        }
+    }
+
+    /**
+     * Header, subsampling and pixel layout of {@code content} without decoding any pixels;
+     * {@code null} if not a readable image. Lets callers reserve memory before {@link #decode}.
+     */
+    public Plan plan(byte[] content, List<Rendition> renditions) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(content))) {
+            ImageReader reader = readerFor(in);
+            if (reader == null) {
+                return null;
+            }
+            try {
+                reader.setInput(in, true, true);
+                Header header = new Header(reader.getFormatName().toLowerCase(), reader.getWidth(0), reader.getHeight(0));
+                return new Plan(header, subsamplingStep(header.width(), header.height(), renditions),
+                        bytesPerPixel(reader.getRawImageType(0)));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Decodes {@code content} as {@code plan} (from {@link #plan} on the same content) worked
+     * out, so the header is not parsed or the subsampling chosen a second time. Returns
+     * {@code null} when no ImageIO reader understands the content.
+     */
+    public Decoded decode(byte[] content, Plan plan) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(content))) {
+            ImageReader reader = readerFor(in);
+            if (reader == null) {
+                return null;
+            }
+            try {
+                reader.setInput(in, true, true);
+                int width = plan.header().width();
+                int height = plan.header().height();
+                int step = plan.subsampling();
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                if (step > 1) {
+                    param.setSourceSubsampling(step, step, 0, 0);
+                }
+                BufferedImage image = reader.read(0, param);
+                log.debug("Decoded {}x{} {} with subsampling {} -> {}x{}", width, height,
+                        plan.header().format(), step, image.getWidth(), image.getHeight());
+                return new Decoded(image, plan.header().format(), width, height, step);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    int subsamplingStep(int width, int height, List<Rendition> renditions) {
+        long pixels = (long) width * height;
+        int minimumStep = 1;
+        if (pixels > maxPixels) {
+            if (oversizePolicy == OversizePolicy.REJECT) {
+                throw new ImageTooLargeException("Image of " + width + "x" + height
+                        + " exceeds the limit of " + maxPixels + " pixels");
+            }
+            // step^2 reduces the decoded pixel count by that factor
+            minimumStep = (int) Math.ceil(Math.sqrt((double) pixels / maxPixels));
+        }
+        if (!subsamplingEnabled) {
+            return minimumStep;
+        }
+
+        int requiredWidth = 1;
+        int requiredHeight = 1;
+        for (Rendition rendition : renditions) {
+            Dimension scaled = ThumbnailRenderer.scaledSize(width, height, rendition);
+            requiredWidth = Math.max(requiredWidth, scaled.width);
+            requiredHeight = Math.max(requiredHeight, scaled.height);
+        }
+        int step = Math.min(width / (requiredWidth * oversample), height / (requiredHeight * oversample));
+        return Math.max(minimumStep, Math.max(1, step));
+    }
+
+    /** Raster bytes per pixel of the type the reader decodes to; 4 (packed ARGB) when it cannot say. */
+    private static int bytesPerPixel(ImageTypeSpecifier type) {
+        if (type == null) {
+            return 4;
+        }
+        SampleModel model = type.getSampleModel(1, 1);
+        return Math.max(1, model.getNumDataElements() * DataBuffer.getDataTypeSize(model.getDataType()) / 8);
+    }
+
+    private static ImageReader readerFor(ImageInputStream in) {
+        if (in == null) {
+            return null;
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+        return readers.hasNext() ? readers.next() : null;
+    }
+}
@@ -0,0 +1,243 @@
+package com.cathay.cdc.thumbnail.poc.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.IndexColorModel;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Picks the output format of a thumbnail and encodes it with explicit writer settings.
+ * <p>
+ * With {@link #AUTO} the format follows the image: photos become (progressive) JPEG, images with
+ * real transparency or few colors become PNG, palette-reduced when they fit in 256 colors. WebP
+ * is used instead for photos and transparency when the client accepts it and an ImageIO WebP
+ * writer is on the classpath. Any ImageIO plugin works; none ships with the JDK.
+ */
+@Slf4j
+@Component
+public class ImageEncoder {
+
+    /** Rendition format that lets the encoder choose. */
+    public static final String AUTO = "auto";
+    /** Rendition format that keeps the format of the original. */
+    public static final String SOURCE = "source";
+
+    /** Formats every browser can show; what stored renditions are chosen from. */
+    public static final List<String> UNIVERSAL = List.of("jpg", "png");
+
+    private static final int PALETTE_SIZE = 256;
+    /** Above this many pixels the color analysis samples a grid instead of reading every pixel. */
+    private static final int FULL_SCAN_PIXELS = 512 * 512;
+
+    /** One buffer per concurrent encode is plenty; at most 16 MB stays pooled. */
+    private final OutputBufferPool buffers = new OutputBufferPool(16, 64 * 1024, 1024 * 1024);
+
+    @Value("${thumbnail.encode.progressive-jpeg:true}")
+    private boolean progressiveJpeg = true;
+
+    @Value("${thumbnail.encode.palette-png:true}")
+    private boolean palettePng = true;
+
+    @Value("${thumbnail.encode.webp-enabled:true}")
+    private boolean webpEnabled = true;
+
+    /** Pixel characteristics that decide the automatic format. */
+    public record Analysis(boolean transparent, boolean graphic, int[] palette) {
+    }
+
+    /**
+     * Formats the client accepts, in our order of preference, from an {@code Accept} header.
+     * Without a header (or with wildcards only) the universal formats are assumed.
+     */
+    public List<String> acceptedFormats(String acceptHeader) {
+        List<String> accepted = new ArrayList<>(UNIVERSAL);
+        if (acceptHeader == null || acceptHeader.isBlank()) {
+            return accepted;
+        }
+        try {
+            for (MediaType type : MediaType.parseMediaTypes(acceptHeader)) {
+                if ("image".equalsIgnoreCase(type.getType()) && "webp".equalsIgnoreCase(type.getSubtype())
+                        && type.getQualityValue() > 0 && canWrite("webp")) {
+                    accepted.add(0, "webp");
+                }
+            }
+        } catch (InvalidMediaTypeException e) {
+            log.debug("Ignoring malformed Accept header: {}", acceptHeader);
+        }
+        return accepted;
+    }
+
+    /**
+     * Output format for {@code image}.
+     *
+     * @param requested rendition format: explicit, {@link #AUTO} / {@code null}, or {@link #SOURCE}
+     * @param accepted  formats the consumer can display, preferred first
+     */
+    public String chooseFormat(BufferedImage image, String requested, String sourceFormat, List<String> accepted) {
+        if (requested != null && !AUTO.equalsIgnoreCase(requested)) {
+            String explicit = SOURCE.equalsIgnoreCase(requested) ? sourceFormat : requested.toLowerCase();
+            return explicit != null && canWrite(explicit) ? explicit : "jpg";
+        }
+        Analysis analysis = analyze(image);
+        boolean webp = webpEnabled && accepted.contains("webp") && canWrite("webp");
+        if (analysis.graphic()) {
+            return "png"; // lossless and small once palette-reduced
+        }
+        if (webp) {
+            return "webp";
+        }
+        return analysis.transparent() ? "png" : "jpg";
+    }
+
+    /** Encodes {@code image}; throws {@link IllegalArgumentException} if no writer handles {@code format}. */
+    public byte[] encode(BufferedImage image, String format, float quality) throws IOException {
+        if (!canWrite(format)) {
+            throw new IllegalArgumentException("No image writer for format: " + format);
+        }
+        if (isJpeg(format) && image.getColorModel().hasAlpha()) {
+            image = flattenAlpha(image);
+        } else if ("png".equals(format) && palettePng && !(image.getColorModel() instanceof IndexColorModel)) {
+            int[] palette = analyze(image).palette();
+            if (palette != null) {
+                image = toIndexed(image, palette);
+            }
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        OutputBufferPool.Buffer os = buffers.borrow();
+        // in-memory stream: ImageIO's default may spool through a temp file
+        try (ImageOutputStream ios = new MemoryCacheImageOutputStream(os)) {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (param.canWriteCompressed()) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                if (param.getCompressionType() == null && param.getCompressionTypes() != null) {
+                    param.setCompressionType(param.getCompressionTypes()[0]);
+                }
+                // PNG is lossless, its "quality" only trades deflate effort; thumbnails are worth the max
+                param.setCompressionQuality("png".equals(format) ? 0f : quality);
+            }
+            if (isJpeg(format) && progressiveJpeg && param.canWriteProgressive()) {
+                param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+            ios.flush();
+            return os.toByteArray();
+        } finally {
+            writer.dispose();
+            buffers.release(os);
+        }
+    }
+
+    /**
+     * Transparency and color count. Small images are scanned completely and yield an exact
+     * palette when they have at most 256 colors; large ones are sampled on a grid, which is
+     * enough to tell a photo from a graphic.
+     */
+    public Analysis analyze(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean full = (long) width * height <= FULL_SCAN_PIXELS;
+        int step = full ? 1 : (int) Math.ceil(Math.sqrt((double) width * height / FULL_SCAN_PIXELS));
+        boolean alpha = image.getColorModel().hasAlpha();
+
+        Set<Integer> colors = new HashSet<>();
+        boolean transparent = false;
+        int[] row = new int[width];
+        for (int y = 0; y < height; y += step) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int x = 0; x < width; x += step) {
+                int argb = alpha ? row[x] : row[x] | 0xFF000000;
+                transparent |= (argb >>> 24) != 0xFF;
+                if (colors.size() <= PALETTE_SIZE) {
+                    colors.add(argb);
+                }
+            }
+        }
+        boolean graphic = colors.size() <= PALETTE_SIZE;
+        int[] palette = null;
+        if (graphic && full) {
+            palette = colors.stream().mapToInt(Integer::intValue).toArray();
+        }
+        return new Analysis(transparent, graphic, palette);
+    }
+
+    public boolean canWrite(String format) {
+        return format != null && ImageIO.getImageWritersByFormatName(format).hasNext();
+    }
+
+    public static String contentTypeOf(String format) {
+        return isJpeg(format) ? "image/jpeg" : "image/" + format.toLowerCase();
+    }
+
+    /** Content type from the leading magic bytes of an encoded image. */
+    public static String sniffContentType(byte[] content) {
+        if (content.length >= 3 && (content[0] & 0xFF) == 0xFF && (content[1] & 0xFF) == 0xD8) {
+            return "image/jpeg";
+        }
+        if (content.length >= 8 && (content[0] & 0xFF) == 0x89 && content[1] == 'P' && content[2] == 'N' && content[3] == 'G') {
+            return "image/png";
+        }
+        if (content.length >= 12 && content[0] == 'R' && content[1] == 'I' && content[2] == 'F' && content[3] == 'F'
+                && content[8] == 'W' && content[9] == 'E' && content[10] == 'B' && content[11] == 'P') {
+            return "image/webp";
+        }
+        if (content.length >= 4 && content[0] == 'G' && content[1] == 'I' && content[2] == 'F') {
+            return "image/gif";
+        }
+        return "application/octet-stream";
+    }
+
+    private static boolean isJpeg(String format) {
+        return "jpg".equalsIgnoreCase(format) || "jpeg".equalsIgnoreCase(format);
+    }
+
+    static BufferedImage toIndexed(BufferedImage image, int[] palette) {
+        IndexColorModel model = new IndexColorModel(8, palette.length, palette, 0, true, -1, DataBuffer.TYPE_BYTE);
+        Map<Integer, Integer> index = new HashMap<>(palette.length * 2);
+        for (int i = 0; i < palette.length; i++) {
+            index.put(palette[i], i);
+        }
+        boolean alpha = image.getColorModel().hasAlpha();
+        BufferedImage indexed = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_BYTE_INDEXED, model);
+        WritableRaster raster = indexed.getRaster();
+        int[] row = new int[image.getWidth()];
+        int[] out = new int[image.getWidth()];
+        for (int y = 0; y < image.getHeight(); y++) {
+            image.getRGB(0, y, row.length, 1, row, 0, row.length);
+            for (int x = 0; x < row.length; x++) {
+                out[x] = index.get(alpha ? row[x] : row[x] | 0xFF000000);
+            }
+            raster.setPixels(0, y, row.length, 1, out);
+        }
+        return indexed;
+    }
+
+    static BufferedImage flattenAlpha(BufferedImage image) {
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, image.getWidth(), image.getHeight());
+            g.drawImage(image, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return rgb;
+    }
+}
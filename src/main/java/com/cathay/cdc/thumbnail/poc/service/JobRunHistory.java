@@ -0,0 +1,203 @@
+package com.cathay.cdc.thumbnail.poc.service;
+
+import com.cathay.cdc.thumbnail.poc.dto.FileMetadata;
+import com.cathay.cdc.thumbnail.poc.dto.JobRunSummary;
+import com.cathay.cdc.thumbnail.poc.entity.ThumbnailJobOutput;
+import com.cathay.cdc.thumbnail.poc.entity.ThumbnailJobRun;
+import com.cathay.cdc.thumbnail.poc.repository.ThumbnailJobRunRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * History of thumbnail job runs.
+ * <p>
+ * The last {@code history-size} runs are held in memory, newest first, as an immutable list that
+ * is swapped on every finished run, so readers never lock and never touch the bucket. Every run
+ * is also written to {@code thumbnail_job_runs}, which refills the buffer after a restart.
+ * Runs that claimed nothing and failed nothing are not recorded, so quiet periods between
+ * scheduled runs do not push the runs that did work out of the history.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class JobRunHistory {
+
+    private final ThumbnailJobRunRepository jobRunRepository;
+
+    @Value("${thumbnail.runs.history-size:20}")
+    private int historySize;
+
+    @Value("${thumbnail.runs.max-outputs-per-run:200}")
+    private int maxOutputsPerRun;
+
+    @Value("${thumbnail.runs.retain:500}")
+    private int retain;
+
+    private final AtomicReference<List<JobRunSummary>> recent = new AtomicReference<>(List.of());
+
+    /** A run in progress. Outputs may be added from any pipeline worker. */
+    public final class Run {
+        private final String mode;
+        private final LocalDateTime startedAt = LocalDateTime.now(ZoneOffset.UTC);
+        private final Queue<FileMetadata> outputs = new ConcurrentLinkedQueue<>();
+        private final AtomicLong outputCount = new AtomicLong();
+        private final AtomicLong reused = new AtomicLong();
+        private final AtomicLong reusedBytes = new AtomicLong();
+
+        private Run(String mode) {
+            this.mode = mode;
+        }
+
+        public void addOutputs(List<FileMetadata> files) {
+            for (FileMetadata file : files) {
+                // keep the first outputs only, a reconcile sweep can produce a whole bucket's worth
+                if (outputCount.getAndIncrement() < maxOutputsPerRun) {
+                    outputs.add(file);
+                }
+            }
+        }
+
+        /** An original whose renditions were copied from identical content instead of rendered. */
+        public void addReused(long sourceBytes) {
+            reused.incrementAndGet();
+            reusedBytes.addAndGet(sourceBytes);
+        }
+    }
+
+    public Run start(String mode) {
+        return new Run(mode);
+    }
+
+    /** Summarizes the run and records it, unless it was idle ({@link #isIdle}); idle runs get no id. */
+    public JobRunSummary finish(Run run, ThumbnailPipeline.Result result) {
+        JobRunSummary summary = JobRunSummary.builder()
+                .mode(run.mode)
+                .startedAt(run.startedAt)
+                .finishedAt(LocalDateTime.now(ZoneOffset.UTC))
+                .listed(result.listed())
+                .created(result.completed())
+                .skipped(result.skipped())
+                .failed(result.failed())
+                .elapsedMs(result.elapsedMs())
+                .downloadMs(result.stageMillis("download"))
+                .resizeMs(result.stageMillis("resize"))
+                .uploadMs(result.stageMillis("upload"))
+                .outputCount(run.outputCount.get())
+                .reused(run.reused.get())
+                .reusedBytes(run.reusedBytes.get())
+                .outputs(List.copyOf(run.outputs))
+                .build();
+        if (isIdle(result)) {
+            return summary;
+        }
+        try {
+            summary.setId(persist(summary));
+        } catch (RuntimeException e) {
+            log.warn("Failed to persist {} job run: {}", run.mode, e.getMessage());
+        }
+        recent.updateAndGet(runs -> prepend(summary, runs));
+        return summary;
+    }
+
+    /** Whether the run found no work at all: nothing claimed and nothing failed. */
+    public static boolean isIdle(ThumbnailPipeline.Result result) {
+        return result.listed() == 0 && result.failed() == 0;
+    }
+
+    /** The last {@code limit} recorded runs, newest first. */
+    public List<JobRunSummary> latest(int limit) {
+        List<JobRunSummary> runs = recent.get();
+        return runs.subList(0, Math.min(Math.max(limit, 0), runs.size()));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void restore() {
+        List<JobRunSummary> runs = jobRunRepository.findLatest(PageRequest.of(0, historySize)).stream()
+                .map(JobRunHistory::toSummary)
+                .toList();
+        recent.set(runs);
+        log.info("Restored {} thumbnail job runs from the database", runs.size());
+    }
+
+    private Long persist(JobRunSummary summary) {
+        ThumbnailJobRun entity = new ThumbnailJobRun();
+        entity.setMode(summary.getMode());
+        entity.setStartedAt(summary.getStartedAt());
+        entity.setFinishedAt(summary.getFinishedAt());
+        entity.setListed(summary.getListed());
+        entity.setCreated(summary.getCreated());
+        entity.setSkipped(summary.getSkipped());
+        entity.setFailed(summary.getFailed());
+        entity.setElapsedMs(summary.getElapsedMs());
+        entity.setDownloadMs(summary.getDownloadMs());
+        entity.setResizeMs(summary.getResizeMs());
+        entity.setUploadMs(summary.getUploadMs());
+        entity.setOutputCount(summary.getOutputCount());
+        entity.setReused(summary.getReused());
+        entity.setReusedBytes(summary.getReusedBytes());
+        for (FileMetadata file : summary.getOutputs()) {
+            entity.getOutputs().add(new ThumbnailJobOutput(file.getBucket(), file.getName(),
+                    file.getContentType(), file.getSize(), file.getCreatedAt()));
+        }
+        Long id = jobRunRepository.save(entity).getId();
+        if (id > retain) {
+            jobRunRepository.deleteUpTo(id - retain);
+        }
+        return id;
+    }
+
+    private List<JobRunSummary> prepend(JobRunSummary summary, List<JobRunSummary> runs) {
+        List<JobRunSummary> updated = new ArrayList<>(Math.min(runs.size() + 1, historySize));
+        updated.add(summary);
+        for (int i = 0; i < runs.size() && updated.size() < historySize; i++) {
+            updated.add(runs.get(i));
+        }
+        return List.copyOf(updated);
+    }
+
+    private static JobRunSummary toSummary(ThumbnailJobRun run) {
+        return JobRunSummary.builder()
+                .id(run.getId())
+                .mode(run.getMode())
+                .startedAt(run.getStartedAt())
+                .finishedAt(run.getFinishedAt())
+                .listed(run.getListed())
+                .created(run.getCreated())
+                .skipped(run.getSkipped())
+                .failed(run.getFailed())
+                .elapsedMs(run.getElapsedMs())
+                .downloadMs(run.getDownloadMs())
+                .resizeMs(run.getResizeMs())
+                .uploadMs(run.getUploadMs())
+                .outputCount(run.getOutputCount())
+                .reused(run.getReused())
+                .reusedBytes(run.getReusedBytes())
+                .outputs(run.getOutputs().stream()
+                        .map(output -> FileMetadata.builder()
+                                .bucket(output.getBucket())
+                                .name(output.getName())
+                                .contentType(output.getContentType())
+                                .size(output.getSize())
+                                .url(FileUrlService.publicUrl(output.getBucket(), output.getName()))
+                                .createdAt(output.getCreatedAt())
+                                .build())
+                        .toList())
+                .build();
+    }
+}
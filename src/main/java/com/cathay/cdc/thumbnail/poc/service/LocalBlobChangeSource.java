@@ -0,0 +1,58 @@
+package com.cathay.cdc.thumbnail.poc.service;
+
+import com.cathay.cdc.thumbnail.poc.dto.BlobUploadedEvent;
+import com.cathay.cdc.thumbnail.poc.storage.BlobStore;
+import com.cathay.cdc.thumbnail.poc.storage.StoredBlob;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * In-process stand-in for a bucket notification feed (e.g. Pub/Sub object-finalize events).
+ * It is fed by {@link BlobUploadedEvent}s from the upload endpoints, so a poll costs one
+ * {@code get} per uploaded object and nothing when the bucket is idle.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "thumbnail.ingest.source", havingValue = "local")
+public class LocalBlobChangeSource implements BlobChangeSource {
+
+    private final BlobStore blobStore;
+
+    private final Set<String> pending = new LinkedHashSet<>();
+
+    @EventListener
+    public void onBlobUploaded(BlobUploadedEvent event) {
+        synchronized (pending) {
+            pending.add(event.name());
+        }
+    }
+
+    @Override
+    public Iterable<StoredBlob> changes(String bucket) {
+        List<String> names;
+        synchronized (pending) {
+            names = new ArrayList<>(pending);
+            pending.clear();
+        }
+        log.info("Draining {} pending change notifications for bucket {}", names.size(), bucket);
+        return names.stream()
+                .map(name -> blobStore.get(bucket, name))
+                .flatMap(Optional::stream)
+                .toList();
+    }
+
+    @Override
+    public boolean listsBucket() {
+        return false;
+    }
+}
@@ -0,0 +1,106 @@
+package com.cathay.cdc.thumbnail.poc.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets for login attempts, one per username and one per client address. An attempt
+ * needs a token from both; the address is checked first so a spraying client does not drain
+ * the buckets of the usernames it tries.
+ * <p>
+ * Buckets are lock-free (a compare-and-set on an immutable state) and live in a bounded
+ * cache that forgets idle keys, so a flood of made-up usernames cannot grow memory.
+ */
+@Slf4j
+@Component
+public class LoginRateLimiter {
+
+    private final Limit userLimit;
+    private final Limit addressLimit;
+    private final Cache<String, TokenBucket> buckets;
+
+    /** {@code capacity} attempts at once, refilled evenly over {@code period}. */
+    record Limit(int capacity, Duration period) {
+        double tokensPerNano() {
+            return (double) capacity / period.toNanos();
+        }
+    }
+
+    public LoginRateLimiter(@Value("${auth.rate-limit.user.capacity:5}") int userCapacity,
+                            @Value("${auth.rate-limit.user.period:1m}") Duration userPeriod,
+                            @Value("${auth.rate-limit.address.capacity:20}") int addressCapacity,
+                            @Value("${auth.rate-limit.address.period:1m}") Duration addressPeriod,
+                            @Value("${auth.rate-limit.max-keys:100000}") long maxKeys) {
+        this.userLimit = new Limit(userCapacity, userPeriod);
+        this.addressLimit = new Limit(addressCapacity, addressPeriod);
+        // an idle bucket is full again after one period, so it can be forgotten then
+        Duration idle = userPeriod.compareTo(addressPeriod) > 0 ? userPeriod : addressPeriod;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(idle)
+                .build();
+        log.info("Login rate limits: {} per {} per user, {} per {} per address",
+                userCapacity, userPeriod, addressCapacity, addressPeriod);
+    }
+
+    /**
+     * Takes one token for the attempt, or returns how long to wait when either bucket is empty.
+     */
+    public Optional<Duration> tryAcquire(String username, String address) {
+        Optional<Duration> wait = bucket("ip:" + address, addressLimit).tryAcquire();
+        if (wait.isPresent()) {
+            return wait;
+        }
+        return bucket("user:" + normalize(username), userLimit).tryAcquire();
+    }
+
+    private TokenBucket bucket(String key, Limit limit) {
+        return buckets.get(key, k -> new TokenBucket(limit));
+    }
+
+    private static String normalize(String username) {
+        return username == null ? "" : username.trim().toLowerCase();
+    }
+
+    static final class TokenBucket {
+        private record State(double tokens, long refilledAt) {
+        }
+
+        private final Limit limit;
+        private final LongSupplier nanoTime;
+        private final AtomicReference<State> state;
+
+        TokenBucket(Limit limit) {
+            this(limit, System::nanoTime);
+        }
+
+        TokenBucket(Limit limit, LongSupplier nanoTime) {
+            this.limit = limit;
+            this.nanoTime = nanoTime;
+            this.state = new AtomicReference<>(new State(limit.capacity(), nanoTime.getAsLong()));
+        }
+
+        Optional<Duration> tryAcquire() {
+            while (true) {
+                State current = state.get();
+                long now = nanoTime.getAsLong();
+                double tokens = Math.min(limit.capacity(),
+                        current.tokens() + (now - current.refilledAt()) * limit.tokensPerNano());
+                if (tokens < 1) {
+                    return Optional.of(Duration.ofNanos((long) Math.ceil((1 - tokens) / limit.tokensPerNano())));
+                }
+                if (state.compareAndSet(current, new State(tokens - 1, now))) {
+                    return Optional.empty();
+                }
+            }
+        }
+    }
+}
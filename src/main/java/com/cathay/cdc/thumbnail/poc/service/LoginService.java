@@ -0,0 +1,133 @@
+package com.cathay.cdc.thumbnail.poc.service;
+
+import com.cathay.cdc.thumbnail.poc.exception.ServiceBusyException;
+import com.cathay.cdc.thumbnail.poc.exception.TooManyRequestsException;
+import io.micrometer.context.ContextExecutorService;
+import io.micrometer.context.ContextSnapshotFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Password verification off the request threads.
+ * <p>
+ * Each attempt first takes a token from {@link LoginRateLimiter}, which rejects excess attempts
+ * (429) before any hashing. Accepted attempts run on a fixed pool of {@code auth.verify.threads}
+ * with a queue of {@code auth.verify.queue-capacity}; when that queue is full the attempt fails
+ * fast (503) instead of piling up. BCrypt therefore never uses more than its share of cores,
+ * and the servlet thread is released while it runs (the controller returns the future).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LoginService {
+
+    private final AuthenticationManager authenticationManager;
+    private final LoginRateLimiter rateLimiter;
+    private final MeterRegistry meterRegistry;
+
+    /** 0 = half of the available cores, at least one */
+    @Value("${auth.verify.threads:0}")
+    private int threads;
+
+    @Value("${auth.verify.queue-capacity:64}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor pool;
+    private ExecutorService executor;
+    private Timer verifySuccess;
+    private Timer verifyFailure;
+    private Counter rateLimited;
+    private Counter busy;
+
+    @PostConstruct
+    private void init() {
+        if (threads <= 0) {
+            threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        }
+        AtomicInteger counter = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+            Thread thread = new Thread(r, "password-verify-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        this.executor = ContextExecutorService.wrap(pool, () -> ContextSnapshotFactory.builder().build().captureAll());
+
+        this.verifySuccess = verifyTimer("success");
+        this.verifyFailure = verifyTimer("failure");
+        this.rateLimited = rejections("rate_limited");
+        this.busy = rejections("busy");
+        Gauge.builder("auth.login.queue", pool, p -> p.getQueue().size())
+                .description("Login attempts waiting for a password verification thread")
+                .register(meterRegistry);
+        log.info("Password verification pool: threads={}, queueCapacity={}", threads, queueCapacity);
+    }
+
+    @PreDestroy
+    private void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Authenticates on the verification pool. Throws {@link TooManyRequestsException} or
+     * {@link ServiceBusyException} right away when the attempt is not admitted; the future
+     * fails with an {@link AuthenticationException} on bad credentials.
+     */
+    public CompletableFuture<Authentication> authenticate(String username, String password, String clientAddress) {
+        Optional<Duration> wait = rateLimiter.tryAcquire(username, clientAddress);
+        if (wait.isPresent()) {
+            rateLimited.increment();
+            throw new TooManyRequestsException("Too many login attempts, retry later", wait.get());
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> verify(username, password), executor);
+        } catch (RejectedExecutionException e) {
+            busy.increment();
+            throw new ServiceBusyException("Login service is busy, retry later");
+        }
+    }
+
+    private Authentication verify(String username, String password) {
+        long start = System.nanoTime();
+        try {
+            Authentication authentication = authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(username, password));
+            verifySuccess.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return authentication;
+        } catch (AuthenticationException e) {
+            verifyFailure.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+
+    private Timer verifyTimer(String outcome) {
+        return Timer.builder("auth.login.verify")
+                .description("Credential verification (account lookup and BCrypt) on the verification pool")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private Counter rejections(String reason) {
+        return Counter.builder("auth.login.rejected")
+                .description("Login attempts refused before verification")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,276 @@
+package com.cathay.cdc.thumbnail.poc.service;
+
+import com.cathay.cdc.thumbnail.poc.configuration.ThumbnailProperties;
+import com.cathay.cdc.thumbnail.poc.configuration.ThumbnailProperties.FitMode;
+import com.cathay.cdc.thumbnail.poc.configuration.ThumbnailProperties.Rendition;
+import com.cathay.cdc.thumbnail.poc.exception.ImageTooLargeException;
+import com.cathay.cdc.thumbnail.poc.exception.NotFoundException;
+import com.cathay.cdc.thumbnail.poc.exception.ServiceBusyException;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.context.ContextExecutorService;
+import io.micrometer.context.ContextSnapshotFactory;
+import com.cathay.cdc.thumbnail.poc.storage.BlobStore;
+import com.cathay.cdc.thumbnail.poc.storage.PreconditionFailedException;
+import com.cathay.cdc.thumbnail.poc.storage.StoredBlob;
+import com.cathay.cdc.thumbnail.poc.storage.WriteCondition;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Renders thumbnails on request. Lookups go memory -> local disk -> bucket -> render, and every
+ * miss is written back to the tiers above it. The in-memory tier is an {@link AsyncCache}, so
+ * concurrent requests for the same key share one in-flight load instead of each decoding the
+ * original.
+ * <p>
+ * Every request reads the original's metadata first (one {@code get}) and all tiers are keyed by
+ * its generation, so an overwritten original is never answered with an old render and a deleted
+ * one is a 404 straight away. Originals that are not images (400) or are larger than
+ * {@code max-source-bytes} (413) are refused before any of their content is read, and the
+ * source bytes count against the decode budget along with the raster.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OnDemandThumbnailService {
+
+    private final ThumbnailRenderer thumbnailRenderer;
+    private final ImageDecoder imageDecoder;
+    private final DecodeAdmission decodeAdmission;
+    private final ImageEncoder imageEncoder;
+    private final ThumbnailProperties thumbnailProperties;
+    private final DiskImageCache diskCache;
+    private final BlobStore blobStore;
+
+    @Value("${gcp.bucket-name}")
+    private String bucketName;
+
+    @Value("${thumbnail.on-demand.max-dimension:2048}")
+    private int maxDimension;
+
+    @Value("${thumbnail.on-demand.max-concurrent-renders:4}")
+    private int maxConcurrentRenders;
+
+    @Value("${thumbnail.on-demand.max-source-bytes:52428800}") // 50 MB
+    private long maxSourceBytes;
+
+    @Value("${thumbnail.cache.memory.max-bytes:67108864}") // 64 MB
+    private long memoryMaxBytes;
+
+    @Value("${thumbnail.cache.memory.ttl-minutes:30}")
+    private long memoryTtlMinutes;
+
+    private ExecutorService loadExecutor;
+    private Semaphore renderPermits;
+    private AsyncCache<RenderKey, Image> memoryCache;
+
+    /** Cache-Control of rendered objects; their names embed the source generation, so they never change. */
+    static final String IMMUTABLE = "public, max-age=31536000, immutable";
+
+    /** @param storedName bucket object holding these bytes, when known to exist */
+    public record Image(String contentType, byte[] content, String storedName) {
+    }
+
+    /**
+     * @param format  explicit output format, or {@code auto} / {@code auto-webp} when the encoder
+     *                picks it from the image and the formats the client accepts
+     */
+    record RenderKey(String object, long generation, int width, int height, String format, List<String> accepted) {
+        String cacheKey() {
+            return generation + "/" + width + "x" + height + "." + format + "/" + object;
+        }
+
+        boolean negotiated() {
+            return format.startsWith(ImageEncoder.AUTO);
+        }
+    }
+
+    @PostConstruct
+    private void init() {
+        // loads run on these threads; carry the request's trace context over to them
+        this.loadExecutor = ContextExecutorService.wrap(
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("thumbnail-render-", 0).factory()),
+                () -> ContextSnapshotFactory.builder().build().captureAll());
+        this.renderPermits = new Semaphore(maxConcurrentRenders);
+        this.memoryCache = Caffeine.newBuilder()
+                .maximumWeight(memoryMaxBytes)
+                .weigher((RenderKey key, Image image) -> image.content().length)
+                .expireAfterWrite(Duration.ofMinutes(memoryTtlMinutes))
+                .executor(loadExecutor)
+                .recordStats()
+                .buildAsync();
+        log.info("On-demand thumbnails ready: memory={} bytes, maxDimension={}, renders={}",
+                memoryMaxBytes, maxDimension, maxConcurrentRenders);
+    }
+
+    /** The in-memory tier, for metrics. */
+    public AsyncCache<?, ?> nativeCache() {
+        return memoryCache;
+    }
+
+    @PreDestroy
+    private void shutdown() {
+        loadExecutor.shutdown();
+    }
+
+    /**
+     * @param format       output format; {@code null} or {@code auto} negotiates it from
+     *                     {@code acceptHeader} and the image itself
+     * @param acceptHeader the request's {@code Accept} header, may be null
+     */
+    public Image getThumbnail(String object, int width, int height, String format, String acceptHeader) {
+        if (width < 0 || height < 0 || (width == 0 && height == 0)) {
+            throw new IllegalArgumentException("At least one of w or h must be a positive number");
+        }
+        if (width > maxDimension || height > maxDimension) {
+            throw new IllegalArgumentException("Requested size exceeds the maximum of " + maxDimension + " px");
+        }
+        String fmt = Optional.ofNullable(format).map(String::toLowerCase).orElse(ImageEncoder.AUTO);
+        if (!ImageEncoder.AUTO.equals(fmt) && !imageEncoder.canWrite(fmt)) {
+            throw new IllegalArgumentException("Unsupported format: " + format);
+        }
+        StoredBlob original = blobStore.get(bucketName, object)
+                .orElseThrow(() -> new NotFoundException("File not found: " + object));
+        if (!original.isImage()) {
+            throw new IllegalArgumentException("Not an image: " + object);
+        }
+        if (original.size() > maxSourceBytes) {
+            throw new ImageTooLargeException("Original " + object + " is " + original.size()
+                    + " bytes, more than the on-demand limit of " + maxSourceBytes);
+        }
+        RenderKey key;
+        if (ImageEncoder.AUTO.equals(fmt)) {
+            // one cache entry per distinct outcome of the negotiation, not per Accept header
+            List<String> accepted = imageEncoder.acceptedFormats(acceptHeader);
+            String variant = accepted.contains("webp") ? ImageEncoder.AUTO + "-webp" : ImageEncoder.AUTO;
+            key = new RenderKey(object, original.generation(), width, height, variant, accepted);
+        } else {
+            key = new RenderKey(object, original.generation(), width, height, fmt, List.of(fmt));
+        }
+
+        try {
+            return memoryCache.get(key, k -> load(k, original)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private Image load(RenderKey key, StoredBlob original) {
+        String cacheKey = key.cacheKey();
+
+        Optional<byte[]> fromDisk = diskCache.get(cacheKey);
+        if (fromDisk.isPresent()) {
+            log.debug("Disk cache hit for {}", cacheKey);
+            return new Image(contentTypeOf(key, fromDisk.get()), fromDisk.get(), null);
+        }
+
+        // content-addressed: a re-uploaded original gets new names instead of stale renders
+        String renderedName = thumbnailProperties.getFolder() + "/_ondemand/" + cacheKey;
+        Optional<StoredBlob> rendered = blobStore.get(bucketName, renderedName);
+        if (rendered.isPresent()) {
+            log.debug("Bucket hit for {}", renderedName);
+            byte[] content = readAllBytes(rendered.get());
+            diskCache.put(cacheKey, content);
+            return new Image(contentTypeOf(key, content), content, renderedName);
+        }
+
+        ThumbnailRenderer.Output output = render(key, original);
+        String contentType = ImageEncoder.contentTypeOf(output.format());
+        diskCache.put(cacheKey, output.content());
+        loadExecutor.execute(() -> writeBack(renderedName, contentType, output.content()));
+        return new Image(contentType, output.content(), null);
+    }
+
+    private ThumbnailRenderer.Output render(RenderKey key, StoredBlob original) {
+
+        Rendition rendition = new Rendition();
+        rendition.setName("ondemand");
+        rendition.setWidth(key.width());
+        rendition.setHeight(key.height());
+        rendition.setFit(key.width() > 0 && key.height() > 0 ? FitMode.CONTAIN
+                : key.width() > 0 ? FitMode.WIDTH : FitMode.HEIGHT);
+        rendition.setFormat(key.negotiated() ? ImageEncoder.AUTO : key.format());
+
+        renderPermits.acquireUninterruptibly();
+        try {
+            // shares the heap budget with the thumbnail pipeline: first the source bytes while they
+            // are read and planned, then source and raster together for the decode
+            byte[] content;
+            ImageDecoder.Plan plan;
+            try (DecodeAdmission.Permit reading = decodeAdmission.admit(key.object(), original.size())) {
+                content = blobStore.readAllBytes(original);
+                plan = imageDecoder.plan(content, List.of(rendition));
+            }
+            if (plan == null) {
+                throw new IllegalArgumentException("Not a valid image: " + key.object());
+            }
+            long reserved = content.length + decodeAdmission.estimate(plan, List.of(rendition));
+            try (DecodeAdmission.Permit permit = decodeAdmission.admit(key.object(), reserved)) {
+                return renderAdmitted(key, content, plan, rendition);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException("Interrupted while waiting to render " + key.object());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to render " + key.object(), e);
+        } finally {
+            renderPermits.release();
+        }
+    }
+
+    private ThumbnailRenderer.Output renderAdmitted(RenderKey key, byte[] content, ImageDecoder.Plan plan,
+                                                    Rendition rendition) throws IOException {
+        ImageDecoder.Decoded decoded = imageDecoder.decode(content, plan);
+        if (decoded == null) {
+            throw new IllegalArgumentException("Not a valid image: " + key.object());
+        }
+        long start = System.currentTimeMillis();
+        ThumbnailRenderer.Output output = thumbnailRenderer
+                .render(decoded.image(), decoded.format(), List.of(rendition), key.accepted()).get(0);
+        log.info("Rendered {} on demand as {} ({} bytes) in {} ms (subsampling {})", key.cacheKey(),
+                output.format(), output.content().length, System.currentTimeMillis() - start, decoded.subsampling());
+        return output;
+    }
+
+    private void writeBack(String name, String contentType, byte[] content) {
+        try {
+            // renders of one key are identical, so whoever writes first wins
+            blobStore.put(bucketName, name, contentType, content, Map.of(), WriteCondition.doesNotExist(), IMMUTABLE);
+        } catch (PreconditionFailedException e) {
+            log.debug("Rendered thumbnail {} already written by another instance", name);
+        } catch (RuntimeException e) {
+            log.warn("Failed to write rendered thumbnail {} back to bucket: {}", name, e.getMessage());
+        }
+    }
+
+    private byte[] readAllBytes(StoredBlob blob) {
+        try {
+            return blobStore.readAllBytes(blob);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + blob.name(), e);
+        }
+    }
+
+    /** Negotiated renders can be any format, so cached bytes are sniffed rather than assumed. */
+    private static String contentTypeOf(RenderKey key, byte[] content) {
+        return key.negotiated() ? ImageEncoder.sniffContentType(content) : ImageEncoder.contentTypeOf(key.format());
+    }
+}
@@ -0,0 +1,46 @@
+package com.cathay.cdc.thumbnail.poc.service;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A few reusable encode buffers. A fresh {@link ByteArrayOutputStream} starts at 32 bytes and
+ * doubles its way up to the size of the thumbnail, copying every time; a pooled one already has
+ * the capacity, so the only allocation left per encode is the exact-size result. Buffers that
+ * grew past {@code maxRetainedBytes} (a rare huge render) are dropped instead of being kept.
+ */
+final class OutputBufferPool {
+
+    static final class Buffer extends ByteArrayOutputStream {
+        private Buffer(int initialSize) {
+            super(initialSize);
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+    }
+
+    private final BlockingQueue<Buffer> idle;
+    private final int initialBytes;
+    private final int maxRetainedBytes;
+
+    OutputBufferPool(int maxIdle, int initialBytes, int maxRetainedBytes) {
+        this.idle = new ArrayBlockingQueue<>(maxIdle);
+        this.initialBytes = initialBytes;
+        this.maxRetainedBytes = maxRetainedBytes;
+    }
+
+    Buffer borrow() {
+        Buffer buffer = idle.poll();
+        return buffer != null ? buffer : new Buffer(initialBytes);
+    }
+
+    void release(Buffer buffer) {
+        if (buffer.capacity() <= maxRetainedBytes) {
+            buffer.reset();
+            idle.offer(buffer);
+        }
+    }
+}
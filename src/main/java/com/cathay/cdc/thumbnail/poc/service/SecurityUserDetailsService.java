@@ -1,45 +1,36 @@
 package com.cathay.cdc.thumbnail.poc.service;
 
-import com.cathay.cdc.thumbnail.poc.entity.User;
-import com.cathay.cdc.thumbnail.poc.repository.UserRepository;
+import com.cathay.cdc.thumbnail.poc.dto.UserAccount;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.catalina.Role;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
-import java.util.Optional;
-import java.util.Set;
-import java.util.stream.Collectors;
-
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class SecurityUserDetailsService implements UserDetailsService {
 
-    private final UserRepository userRepository;
+    private final UserService userService;
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        log.info("Loading user by username: {}", username);
+        log.debug("Loading user by username: {}", username);
 
-        return userRepository.findByUsername(username)
+        return userService.findAccount(username)
                 .map(this::mapToSpringUser)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
     }
 
-    private UserDetails mapToSpringUser(User user) {
-        Set<GrantedAuthority> authorities = user.getRoles().stream()
-                .map(role -> new SimpleGrantedAuthority(role.getName())) // ✅ explicit lambda
-                .collect(Collectors.toSet());
-
+    /** A fresh instance per call: the authentication manager erases its password afterwards. */
+    private UserDetails mapToSpringUser(UserAccount account) {
         return org.springframework.security.core.userdetails.User.builder()
-                .username(user.getUsername())
-                .password(user.getPassword())
-                .authorities(authorities)
+                .username(account.username())
+                .password(account.passwordHash())
+                .disabled(!account.enabled())
+                .authorities(account.roles().toArray(String[]::new))
                 .build();
     }
 }
@@ -0,0 +1,320 @@
+package com.cathay.cdc.thumbnail.poc.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Staged thumbnail pipeline: list -> download -> resize -> upload.
+ * <p>
+ * Every stage reads from a bounded queue and runs a fixed number of workers, so a slow stage
+ * blocks the one in front of it instead of letting work pile up in memory. Download and upload
+ * are I/O bound and run on virtual threads; resize is CPU bound and runs on a platform pool
+ * sized to the number of cores.
+ * <p>
+ * Each stage execution is an observation ({@code thumbnail.stage}, tagged with stage and
+ * outcome), which yields both a timer and a span. Spans are parented explicitly to the
+ * observation current on the calling thread, since items hop between worker threads. Queue
+ * depths are gauges ({@code thumbnail.pipeline.queue}).
+ * <p>
+ * A stage that throws (including an {@link Error} such as an OOM on one large image) fails that
+ * item only. Should every worker of a stage still die, the run is aborted: upstream stages and the
+ * source stop waiting for room in its queue, and the unfinished items are left to their leases.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ThumbnailPipeline {
+
+    private static final List<String> STAGES = List.of("download", "resize", "upload");
+
+    /** Marker pushed through the queues once the source is exhausted. */
+    private static final Object END = new Object();
+    /** How often a blocked hand-off re-checks whether the run was aborted. */
+    private static final long HANDOFF_POLL_MS = 100;
+
+    @Value("${thumbnail.pipeline.download-workers:8}")
+    private int downloadWorkers;
+
+    @Value("${thumbnail.pipeline.resize-workers:0}") // 0 = one per available core
+    private int resizeWorkers;
+
+    @Value("${thumbnail.pipeline.upload-workers:8}")
+    private int uploadWorkers;
+
+    @Value("${thumbnail.pipeline.queue-capacity:16}")
+    private int queueCapacity;
+
+    private final MeterRegistry meterRegistry;
+    private final ObservationRegistry observationRegistry;
+
+    private ExecutorService resizePool;
+    /**
+     * Stage input queues of every run in progress, for the depth gauges. Runs can overlap: with
+     * virtual threads the incremental and reconcile jobs are scheduled independently.
+     */
+    private final Map<Counters, Map<String, BlockingQueue<Object>>> activeRuns = new ConcurrentHashMap<>();
+
+    @FunctionalInterface
+    public interface Stage<I, O> {
+        /** Returns the output for the next stage, or {@code null} to drop the item. */
+        O apply(I input) throws Exception;
+    }
+
+    /** Told about every item a stage threw on, e.g. to record the failure against its work item. */
+    @FunctionalInterface
+    public interface FailureHandler {
+        void failed(String stage, Object input, Throwable error);
+    }
+
+    /**
+     * @param stageMillis time spent inside each stage ("download", "resize", "upload"), summed over
+     *                    its workers
+     */
+    public record Result(long listed, long completed, long skipped, long failed, long elapsedMs,
+                         Map<String, Long> stageMillis) {
+
+        public long stageMillis(String stage) {
+            return stageMillis.getOrDefault(stage, 0L);
+        }
+    }
+
+    @PostConstruct
+    private void init() {
+        if (resizeWorkers <= 0) {
+            resizeWorkers = Runtime.getRuntime().availableProcessors();
+        }
+        AtomicInteger counter = new AtomicInteger();
+        this.resizePool = Executors.newFixedThreadPool(resizeWorkers, r -> {
+            Thread thread = new Thread(r, "thumbnail-resize-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (String stage : STAGES) {
+            Gauge.builder("thumbnail.pipeline.queue", activeRuns, runs -> runs.values().stream()
+                            .mapToInt(queues -> queues.get(stage).size())
+                            .sum())
+                    .description("Items waiting in front of a pipeline stage, all running jobs")
+                    .tag("stage", stage)
+                    .register(meterRegistry);
+        }
+        log.info("Thumbnail pipeline initialized: download={}, resize={}, upload={}, queueCapacity={}",
+                downloadWorkers, resizeWorkers, uploadWorkers, queueCapacity);
+    }
+
+    @PreDestroy
+    private void shutdown() {
+        resizePool.shutdownNow();
+    }
+
+    /**
+     * Runs {@code source} through the three stages and blocks until every item has either been
+     * uploaded, dropped or failed. The source is iterated on the calling thread, which is what
+     * gives listing its backpressure: it stops paging while the download queue is full.
+     */
+    public <S, D, R> Result run(Iterable<S> source,
+                                Stage<S, D> download,
+                                Stage<D, R> resize,
+                                Stage<R, ?> upload) {
+        return run(source, download, resize, upload, (stage, input, error) -> {
+        });
+    }
+
+    public <S, D, R> Result run(Iterable<S> source,
+                                Stage<S, D> download,
+                                Stage<D, R> resize,
+                                Stage<R, ?> upload,
+                                FailureHandler onFailure) {
+        long start = System.currentTimeMillis();
+        Counters counters = new Counters(observationRegistry.getCurrentObservation());
+
+        BlockingQueue<Object> downloadQueue = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Object> resizeQueue = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Object> uploadQueue = new ArrayBlockingQueue<>(queueCapacity);
+        activeRuns.put(counters, Map.of("download", downloadQueue, "resize", resizeQueue, "upload", uploadQueue));
+
+        List<Future<?>> workers = new ArrayList<>();
+        try (ExecutorService downloadPool = virtualThreads("thumbnail-download-");
+             ExecutorService uploadPool = virtualThreads("thumbnail-upload-")) {
+
+            startStage("download", downloadPool, downloadWorkers, download,
+                    downloadQueue, resizeQueue, resizeWorkers, counters, onFailure, workers);
+            startStage("resize", resizePool, resizeWorkers, resize,
+                    resizeQueue, uploadQueue, uploadWorkers, counters, onFailure, workers);
+            startStage("upload", uploadPool, uploadWorkers, upload,
+                    uploadQueue, null, 0, counters, onFailure, workers);
+
+            try {
+                for (S item : source) {
+                    if (!handOff(downloadQueue, item, counters)) {
+                        break;
+                    }
+                    counters.listed.incrementAndGet();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                workers.forEach(w -> w.cancel(true));
+            } catch (RuntimeException e) {
+                log.error("Listing failed after {} items: {}", counters.listed.get(), e.getMessage(), e);
+            } finally {
+                signalEnd(downloadQueue, downloadWorkers, counters);
+            }
+
+            for (Future<?> worker : workers) {
+                try {
+                    worker.get();
+                } catch (CancellationException | ExecutionException e) {
+                    log.warn("Pipeline worker ended abnormally: {}", e.getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    workers.forEach(w -> w.cancel(true));
+                    break;
+                }
+            }
+        } finally {
+            activeRuns.remove(counters);
+        }
+
+        Map<String, Long> stageMillis = new LinkedHashMap<>();
+        counters.busyNanos.forEach((stage, nanos) -> stageMillis.put(stage, TimeUnit.NANOSECONDS.toMillis(nanos.sum())));
+        return new Result(counters.listed.get(), counters.completed.get(), counters.skipped.get(),
+                counters.failed.get(), System.currentTimeMillis() - start, stageMillis);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <I, O> void startStage(String name,
+                                   ExecutorService executor,
+                                   int workerCount,
+                                   Stage<I, O> stage,
+                                   BlockingQueue<Object> in,
+                                   BlockingQueue<Object> out,
+                                   int nextWorkerCount,
+                                   Counters counters,
+                                   FailureHandler onFailure,
+                                   List<Future<?>> workers) {
+        AtomicInteger running = new AtomicInteger(workerCount);
+        LongAdder busyNanos = counters.busyNanos.computeIfAbsent(name, k -> new LongAdder());
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(executor.submit(() -> {
+                try {
+                    while (true) {
+                        Object item = in.take();
+                        if (item == END) {
+                            break;
+                        }
+                        O result = null;
+                        long started = System.nanoTime();
+                        Observation observation = Observation.createNotStarted("thumbnail.stage", observationRegistry)
+                                .parentObservation(counters.parent)
+                                .lowCardinalityKeyValue("stage", name)
+                                .start();
+                        try (Observation.Scope scope = observation.openScope()) {
+                            result = stage.apply((I) item);
+                            observation.lowCardinalityKeyValue("outcome", result == null ? "skipped" : "success");
+                        } catch (InterruptedException e) {
+                            throw e;
+                        } catch (Throwable e) {
+                            counters.failed.incrementAndGet();
+                            observation.lowCardinalityKeyValue("outcome", "failure");
+                            observation.error(e);
+                            meterRegistry.counter("thumbnail.pipeline.failures",
+                                    "stage", name, "cause", e.getClass().getSimpleName()).increment();
+                            log.error("Pipeline stage '{}' failed: {}", name, e.getMessage(), e);
+                            try {
+                                onFailure.failed(name, item, e);
+                            } catch (RuntimeException handlerError) {
+                                log.warn("Failure handler of stage '{}' failed: {}", name, handlerError.getMessage());
+                            }
+                            continue;
+                        } finally {
+                            observation.stop();
+                            busyNanos.add(System.nanoTime() - started);
+                        }
+                        // waiting for room downstream is backpressure, not time spent in the stage
+                        if (result == null) {
+                            counters.skipped.incrementAndGet();
+                        } else if (out != null) {
+                            if (!handOff(out, result, counters)) {
+                                break;
+                            }
+                        } else {
+                            counters.completed.incrementAndGet();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Throwable e) {
+                    // nothing would drain this stage's queue any more; unblock everyone upstream
+                    counters.aborted = true;
+                    log.error("Pipeline stage '{}' worker died, aborting the run: {}", name, e.getMessage(), e);
+                    throw e;
+                } finally {
+                    // the last worker out tells the next stage there is nothing more coming
+                    if (running.decrementAndGet() == 0 && out != null) {
+                        signalEnd(out, nextWorkerCount, counters);
+                    }
+                }
+                return null;
+            }));
+        }
+    }
+
+    private static void signalEnd(BlockingQueue<Object> queue, int workerCount, Counters counters) {
+        try {
+            for (int i = 0; i < workerCount; i++) {
+                if (!handOff(queue, END, counters)) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Blocks until {@code queue} takes {@code item}; false once the run has been aborted. */
+    private static boolean handOff(BlockingQueue<Object> queue, Object item, Counters counters)
+            throws InterruptedException {
+        while (!counters.aborted) {
+            if (queue.offer(item, HANDOFF_POLL_MS, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static ExecutorService virtualThreads(String prefix) {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix, 0).factory());
+    }
+
+    private static final class Counters {
+        /** Observation of the job, parent of every stage span; may be null. */
+        private final Observation parent;
+        private final AtomicLong listed = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final Map<String, LongAdder> busyNanos = new ConcurrentHashMap<>();
+        /** Set when a stage lost all its workers; blocked hand-offs give up. */
+        private volatile boolean aborted;
+
+        private Counters(Observation parent) {
+            this.parent = parent;
+        }
+    }
+}
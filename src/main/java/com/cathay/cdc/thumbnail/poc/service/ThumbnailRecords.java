@@ -0,0 +1,67 @@
+package com.cathay.cdc.thumbnail.poc.service;
+
+import com.cathay.cdc.thumbnail.poc.storage.StoredBlob;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Object metadata that ties originals and their renditions together.
+ * <p>
+ * The original is marked with the generation it was rendered from, so a re-uploaded original
+ * (new generation) is never mistaken for done. Every rendition records the generation and
+ * CRC32C of its source, so a retry or an identical re-upload can tell from metadata alone that
+ * the existing renditions are still right.
+ */
+final class ThumbnailRecords {
+
+    // on the original
+    static final String GENERATED = "thumbnailGenerated";
+    static final String GENERATION = "thumbnailGeneration";
+    static final String RENDITIONS = "thumbnailRenditions";
+
+    // on each rendition
+    static final String SOURCE_GENERATION = "sourceGeneration";
+    static final String SOURCE_CRC32C = "sourceCrc32c";
+    static final String SOURCE_RENDITIONS = "sourceRenditions";
+
+    private ThumbnailRecords() {
+    }
+
+    /** Whether the original is marked as rendered, from exactly this generation. */
+    static boolean isMarked(StoredBlob original) {
+        return "true".equals(original.metadata(GENERATED))
+                && String.valueOf(original.generation()).equals(original.metadata(GENERATION));
+    }
+
+    /** Whether the original is marked as rendered from this generation with these profiles. */
+    static boolean isMarkedCurrent(StoredBlob original, String signature) {
+        return isMarked(original) && signature.equals(original.metadata(RENDITIONS));
+    }
+
+    /** Metadata to store on a rendition of {@code original}. */
+    static Map<String, String> renditionMetadata(StoredBlob original, String signature) {
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put(SOURCE_GENERATION, String.valueOf(original.generation()));
+        metadata.put(SOURCE_CRC32C, original.crc32c());
+        metadata.put(SOURCE_RENDITIONS, signature);
+        return metadata;
+    }
+
+    /**
+     * Whether a rendition with the given metadata was produced from the same content as
+     * {@code original} with these profiles. Content is compared by CRC32C when both sides have
+     * one, so an identical re-upload reuses its renditions.
+     */
+    static boolean isCurrentFor(Map<String, String> renditionMetadata, StoredBlob original, String signature) {
+        if (renditionMetadata == null || !signature.equals(renditionMetadata.get(SOURCE_RENDITIONS))) {
+            return false;
+        }
+        String crc32c = renditionMetadata.get(SOURCE_CRC32C);
+        if (crc32c != null && original.crc32c() != null) {
+            return crc32c.equals(original.crc32c());
+        }
+        return Objects.equals(renditionMetadata.get(SOURCE_GENERATION), String.valueOf(original.generation()));
+    }
+}
@@ -0,0 +1,113 @@
+package com.cathay.cdc.thumbnail.poc.service;
+
+import com.cathay.cdc.thumbnail.poc.configuration.ThumbnailProperties;
+import com.cathay.cdc.thumbnail.poc.configuration.ThumbnailProperties.FitMode;
+import com.cathay.cdc.thumbnail.poc.configuration.ThumbnailProperties.Rendition;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.RequiredArgsConstructor;
+import org.imgscalr.Scalr;
+import org.springframework.stereotype.Component;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Produces every configured rendition from one decoded source image.
+ * <p>
+ * Renditions are rendered largest first and each step downscales from the previous,
+ * still uncropped, intermediate whenever it is big enough, so the full-size original is
+ * only resampled once per job item.
+ */
+@Component
+@RequiredArgsConstructor
+public class ThumbnailRenderer {
+
+    private final ThumbnailProperties properties;
+    private final ImageEncoder imageEncoder;
+    private final ObservationRegistry observationRegistry;
+
+    public record Output(Rendition rendition, String format, int width, int height, byte[] content) {
+    }
+
+    public List<Output> render(BufferedImage original, String sourceFormat) throws IOException {
+        return render(original, sourceFormat, properties.effectiveRenditions());
+    }
+
+    public List<Output> render(BufferedImage original, String sourceFormat, List<Rendition> renditions)
+            throws IOException {
+        return render(original, sourceFormat, renditions, ImageEncoder.UNIVERSAL);
+    }
+
+    /**
+     * @param accepted formats the consumer can display, preferred first; narrows the choice of
+     *                 renditions whose format is left to the {@link ImageEncoder}
+     */
+    public List<Output> render(BufferedImage original, String sourceFormat, List<Rendition> renditions,
+                               List<String> accepted) throws IOException {
+        int srcWidth = original.getWidth();
+        int srcHeight = original.getHeight();
+
+        List<Rendition> ordered = new ArrayList<>(renditions);
+        ordered.sort(Comparator.comparingLong((Rendition r) -> area(scaledSize(srcWidth, srcHeight, r))).reversed());
+
+        List<Output> outputs = new ArrayList<>(ordered.size());
+        BufferedImage ladder = original;
+        for (Rendition rendition : ordered) {
+            Dimension scaled = scaledSize(srcWidth, srcHeight, rendition);
+            BufferedImage base = ladder.getWidth() >= scaled.width && ladder.getHeight() >= scaled.height
+                    ? ladder : original;
+            BufferedImage resized = base.getWidth() == scaled.width && base.getHeight() == scaled.height
+                    ? base
+                    : Observation.createNotStarted("thumbnail.resize", observationRegistry)
+                    .observe(() -> Scalr.resize(base, Scalr.Method.QUALITY, Scalr.Mode.FIT_EXACT, scaled.width, scaled.height));
+            if (rendition.getFit() != FitMode.EXACT) {
+                // aspect ratio is preserved, so smaller renditions can start from here
+                ladder = resized;
+            }
+
+            BufferedImage out = rendition.getFit() == FitMode.COVER ? centerCrop(resized, rendition) : resized;
+
+            String format = imageEncoder.chooseFormat(out, rendition.getFormat(), sourceFormat, accepted);
+            byte[] content = Observation.createNotStarted("thumbnail.encode", observationRegistry)
+                    .lowCardinalityKeyValue("format", format)
+                    .observeChecked(() -> imageEncoder.encode(out, format, rendition.getQuality()));
+            outputs.add(new Output(rendition, format, out.getWidth(), out.getHeight(), content));
+        }
+        return outputs;
+    }
+
+    private static BufferedImage centerCrop(BufferedImage image, Rendition rendition) {
+        int w = Math.min(rendition.getWidth(), image.getWidth());
+        int h = Math.min(rendition.getHeight(), image.getHeight());
+        return Scalr.crop(image, (image.getWidth() - w) / 2, (image.getHeight() - h) / 2, w, h);
+    }
+
+    /** Size of the scaled (pre-crop) image for a rendition; never upscales except for EXACT. */
+    static Dimension scaledSize(int srcWidth, int srcHeight, Rendition rendition) {
+        double sx = rendition.getWidth() > 0 ? (double) rendition.getWidth() / srcWidth : Double.MAX_VALUE;
+        double sy = rendition.getHeight() > 0 ? (double) rendition.getHeight() / srcHeight : Double.MAX_VALUE;
+        double scale = switch (rendition.getFit()) {
+            case WIDTH -> sx;
+            case HEIGHT -> sy;
+            case CONTAIN -> Math.min(sx, sy);
+            case COVER -> Math.max(sx == Double.MAX_VALUE ? sy : sx, sy == Double.MAX_VALUE ? sx : sy);
+            case EXACT -> 1.0;
+        };
+        if (rendition.getFit() == FitMode.EXACT) {
+            return new Dimension(Math.max(1, rendition.getWidth()), Math.max(1, rendition.getHeight()));
+        }
+        scale = Math.min(scale, 1.0);
+        return new Dimension(
+                Math.max(1, (int) Math.round(srcWidth * scale)),
+                Math.max(1, (int) Math.round(srcHeight * scale)));
+    }
+
+    private static long area(Dimension d) {
+        return (long) d.width * d.height;
+    }
+}
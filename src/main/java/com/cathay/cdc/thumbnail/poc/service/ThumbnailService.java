@@ -1,185 +1,484 @@
 package com.cathay.cdc.thumbnail.poc.service;
 
+import com.cathay.cdc.thumbnail.poc.configuration.ThumbnailProperties;
+import com.cathay.cdc.thumbnail.poc.configuration.ThumbnailProperties.Rendition;
 import com.cathay.cdc.thumbnail.poc.dto.FileMetadata;
-import com.google.auth.oauth2.ServiceAccountCredentials;
-import com.google.cloud.storage.*;
+import com.cathay.cdc.thumbnail.poc.dto.JobRunSummary;
+import com.cathay.cdc.thumbnail.poc.dto.WorkItemFailure;
+import com.cathay.cdc.thumbnail.poc.entity.IngestCheckpoint;
+import com.cathay.cdc.thumbnail.poc.entity.ThumbnailWorkItem;
+import com.cathay.cdc.thumbnail.poc.exception.NotFoundException;
+import com.cathay.cdc.thumbnail.poc.exception.ServiceBusyException;
+import com.cathay.cdc.thumbnail.poc.libs.TimeUtil;
+import com.cathay.cdc.thumbnail.poc.repository.IngestCheckpointRepository;
+import com.cathay.cdc.thumbnail.poc.storage.BlobPage;
+import com.cathay.cdc.thumbnail.poc.storage.BlobStore;
+import com.cathay.cdc.thumbnail.poc.storage.PreconditionFailedException;
+import com.cathay.cdc.thumbnail.poc.storage.StoredBlob;
+import com.cathay.cdc.thumbnail.poc.storage.WriteCondition;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.imgscalr.Scalr;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import javax.annotation.PostConstruct;
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ThumbnailService {
 
-    private Storage storage;
-
-    @Value("${gcp.project-id}")
-    private String projectId;
+    private final ThumbnailPipeline thumbnailPipeline;
+    private final BlobChangeSource changeSource;
+    private final ThumbnailRenderer thumbnailRenderer;
+    private final ImageDecoder imageDecoder;
+    private final DecodeAdmission decodeAdmission;
+    private final ThumbnailProperties thumbnailProperties;
+    private final BlobStore blobStore;
+    private final FileIndexService fileIndexService;
+    private final JobRunHistory jobRunHistory;
+    private final ThumbnailWorkQueue workQueue;
+    private final ContentDedupService dedupService;
+    private final IngestCheckpointRepository checkpointRepository;
+    private final FileUrlService fileUrlService;
+    private final MeterRegistry meterRegistry;
+    private final ObservationRegistry observationRegistry;
 
     @Value("${gcp.bucket-name}")
     private String bucketName;
 
-    @Value("${thumbnail.width:150}")
-    private int thumbnailWidth;
+    @Value("${thumbnail.decode.busy-retry-delay:1m}")
+    private Duration busyRetryDelay;
 
-    @Value("${thumbnail.folder:thumbnails}")
-    private String thumbnailFolder;
+    private static final String INGEST_LOCK = "thumbnail-ingest";
+    private static final String RECONCILE_LOCK = "thumbnail-reconcile";
+    /** Listing position of the reconciliation sweep, in ingest_checkpoints. */
+    private static final String RECONCILE_CHECKPOINT = "thumbnail-reconcile";
 
-    @Value("${gcp.credentials.path}")
-    private Resource credentialsResource;
+    /**
+     * Incremental run: originals reported by the {@link BlobChangeSource} are queued (by one
+     * instance at a time when that means listing the bucket), then this instance works off
+     * whatever share of the queue it can claim.
+     */
+    @Scheduled(fixedDelayString = "${thumbnail.ingest.interval-ms:60000}") // waits for previous run
+    public void generateThumbnailsJob() {
+        log.info("🚀 Starting incremental thumbnail job...");
+        observed("incremental", () -> {
+            if (changeSource.listsBucket()) {
+                workQueue.runExclusively(INGEST_LOCK, () -> listing("incremental", this::enqueueChanges));
+            } else {
+                listing("incremental", this::enqueueChanges);
+            }
+            runPipeline("incremental");
+        });
+    }
 
-    @PostConstruct
-    private void init() throws IOException {
-        log.info("Initializing GCP Storage client for project: {}", projectId);
-        this.storage = StorageOptions.newBuilder()
-                .setProjectId(projectId)
-                .setCredentials(ServiceAccountCredentials.fromStream(credentialsResource.getInputStream()))
-                .build()
-                .getService();
-        log.info("✅ GCP Storage initialized with bucket: {}", bucketName);
+    /**
+     * Full reconciliation sweep: re-checks every object in the bucket, catching anything the
+     * incremental runs missed (deleted thumbnails, objects written elsewhere). The listing
+     * position is saved after every page, so a sweep cut short by a restart resumes there.
+     */
+    @Scheduled(fixedDelayString = "${thumbnail.reconcile.interval-ms:3600000}",
+            initialDelayString = "${thumbnail.reconcile.initial-delay-ms:300000}")
+    public void reconcileThumbnailsJob() {
+        log.info("🚀 Starting thumbnail reconciliation sweep...");
+        observed("reconcile", () -> {
+            workQueue.runExclusively(RECONCILE_LOCK, () -> listing("reconcile", this::queueOutdated));
+            runPipeline("reconcile");
+        });
     }
 
-    @Scheduled(fixedDelay = 60000) // every 1 min, waits for previous run
-    public void generateThumbnailsJob() {
-        log.info("🚀 Starting thumbnail generation job...");
-        Bucket bucket = storage.get(bucketName);
-        if (bucket == null) {
-            log.error("❌ Bucket not found: {}", bucketName);
-            return;
-        }
+    /** One trace per job run; listing and every pipeline stage become child spans. */
+    private void observed(String mode, Runnable job) {
+        Observation.createNotStarted("thumbnail.job", observationRegistry)
+                .lowCardinalityKeyValue("mode", mode)
+                .observe(job);
+    }
+
+    private void listing(String mode, Runnable listing) {
+        Observation.createNotStarted("thumbnail.list", observationRegistry)
+                .lowCardinalityKeyValue("mode", mode)
+                .observe(listing);
+    }
 
-        for (Blob blob : bucket.list(Storage.BlobListOption.pageSize(100)).iterateAll()) {
-            if (isImage(blob) && needsThumbnail(blob)) {
-                try {
-                    createThumbnail(bucket, blob);
-                } catch (Exception e) {
-                    log.error("❌ Failed processing {}: {}", blob.getName(), e.getMessage(), e);
+    private void queueOutdated() {
+        String signature = thumbnailProperties.renditionSignature();
+        String renditionPrefix = thumbnailProperties.prefixOf(thumbnailProperties.effectiveRenditions().get(0)) + "/";
+        RenditionCursor firstRenditions = new RenditionCursor(
+                blobStore.listAll(bucketName, renditionPrefix, 1000), renditionPrefix.length());
+        IngestCheckpoint sweep = checkpointRepository.findById(RECONCILE_CHECKPOINT).orElseGet(() -> {
+            IngestCheckpoint checkpoint = new IngestCheckpoint();
+            checkpoint.setName(RECONCILE_CHECKPOINT);
+            return checkpoint;
+        });
+        String pageToken = sweep.getPageToken();
+        if (pageToken != null) {
+            log.info("⏩ Resuming interrupted reconciliation sweep from page token {}", pageToken);
+        }
+        long queued = 0;
+        do {
+            BlobPage page = blobStore.list(bucketName, null, pageToken, 1000);
+            for (StoredBlob blob : page.blobs()) {
+                if (!blob.isImage() || isRendition(blob.name())) {
+                    continue;
+                }
+                // the rendition listing is walked alongside this one instead of a get per original
+                boolean current = !needsThumbnail(blob)
+                        && ThumbnailRecords.isCurrentFor(firstRenditions.metadataOf(blob.name()), blob, signature);
+                if (!current && workQueue.reopen(blob)) {
+                    queued++;
                 }
             }
-        }
+            if (!workQueue.holds(RECONCILE_LOCK)) {
+                log.warn("⚠️ Reconciliation lock taken over, leaving the sweep position to its new holder");
+                return;
+            }
+            // the page's items are durable in the queue now; null once the sweep is complete
+            pageToken = page.nextPageToken();
+            sweep.setPageToken(pageToken);
+            sweep.setUpdatedAt(LocalDateTime.now());
+            sweep = checkpointRepository.save(sweep);
+        } while (pageToken != null);
+        workQueue.pruneDone();
+        workQueue.quarantineAbandoned();
+        log.info("🔎 Reconciliation queued {} originals", queued);
     }
 
-    public List<FileMetadata> getLastCreatedThumbnails() {
-        Bucket bucket = storage.get(bucketName);
-        if (bucket == null) {
-            log.error("❌ Bucket not found: {}", bucketName);
-            return List.of();
+    private void enqueueChanges() {
+        long queued = 0;
+        for (StoredBlob blob : changeSource.changes(bucketName)) {
+            if (blob.isImage() && !isRendition(blob.name()) && workQueue.enqueue(blob)) {
+                queued++;
+            }
         }
+        // the queue is durable, so the change feed can move on as soon as items are in it
+        changeSource.commit();
+        log.info("📥 Queued {} new originals", queued);
+    }
 
-        List<FileMetadata> thumbnails = new ArrayList<>();
+    private void runPipeline(String mode) {
+        JobRunHistory.Run run = jobRunHistory.start(mode);
+        ThumbnailPipeline.Result result;
+        try (ThumbnailWorkQueue.Claims claims = workQueue.claims()) {
+            result = thumbnailPipeline.run(claims, this::download, this::render, rendered -> {
+                List<FileMetadata> created = upload(rendered);
+                run.addOutputs(created);
+                if (!rendered.reused().isEmpty()) {
+                    run.addReused(rendered.source().size());
+                }
+                return created;
+            }, (stage, input, error) -> workQueue.fail(workItemOf(input), error));
+        }
+        JobRunSummary summary = jobRunHistory.finish(run, result);
+        if (JobRunHistory.isIdle(result)) {
+            log.debug("Thumbnail {} job found no work in {} ms", mode, result.elapsedMs());
+            return;
+        }
+        log.info("🏁 Thumbnail {} job #{} finished: claimed={}, created={}, skipped={}, failed={} in {} ms",
+                mode, summary.getId(), result.listed(), result.completed(), result.skipped(), result.failed(),
+                result.elapsedMs());
+    }
 
-        for (Blob blob : bucket.list(Storage.BlobListOption.prefix(thumbnailFolder + "/")).iterateAll()) {
-            // skip folder placeholders
-            if (blob.isDirectory()) continue;
+    private static ThumbnailWorkItem workItemOf(Object stageInput) {
+        if (stageInput instanceof ThumbnailWorkItem item) {
+            return item;
+        }
+        if (stageInput instanceof SourceImage source) {
+            return source.item();
+        }
+        if (stageInput instanceof RenderedThumbnail rendered) {
+            return rendered.item();
+        }
+        throw new IllegalArgumentException("Not a pipeline item: " + stageInput);
+    }
 
-            String url = String.format("https://storage.googleapis.com/%s/%s",
-                    blob.getBucket(), blob.getName());
+    /** Items that failed in {@code state} (PENDING = retrying with backoff, QUARANTINED), newest first. */
+    public List<WorkItemFailure> getFailures(String state, int limit) {
+        if (!ThumbnailWorkItem.PENDING.equals(state) && !ThumbnailWorkItem.QUARANTINED.equals(state)) {
+            throw new IllegalArgumentException("state must be PENDING or QUARANTINED");
+        }
+        if (limit < 1 || limit > 1000) {
+            throw new IllegalArgumentException("limit must be between 1 and 1000");
+        }
+        return workQueue.failures(state, limit);
+    }
 
-            thumbnails.add(FileMetadata.builder()
-                    .bucket(blob.getBucket())
-                    .name(blob.getName())
-                    .contentType(blob.getContentType())
-                    .size(blob.getSize())
-                    .url(url)
-                    .build()
-            );
+    /** Requeues one quarantined item, or all of them when {@code id} is null; returns how many. */
+    public int requeueQuarantined(Long id) {
+        int requeued = workQueue.requeue(id);
+        if (id != null && requeued == 0) {
+            throw new NotFoundException("No quarantined work item with id " + id);
         }
-        log.info("📂 Found {} thumbnails in bucket {}/{}", thumbnails.size(), bucketName, thumbnailFolder);
-        return thumbnails;
+        log.info("🔁 Requeued {} quarantined originals", requeued);
+        return requeued;
     }
 
-    private boolean isImage(Blob blob) {
-        return Optional.ofNullable(blob.getContentType())
-                .map(type -> type.startsWith("image/"))
-                .orElse(false);
+    /** Thumbnails produced by the most recent job run that produced any. */
+    public List<FileMetadata> getLastCreatedThumbnails() {
+        List<FileMetadata> thumbnails = jobRunHistory.latest(Integer.MAX_VALUE).stream()
+                .filter(run -> run.getOutputCount() > 0)
+                .findFirst()
+                .map(JobRunSummary::getOutputs)
+                .orElse(List.of());
+        log.info("📂 Found {} thumbnails from the last job run", thumbnails.size());
+        return fileUrlService.withUrls(thumbnails);
     }
 
-    private boolean needsThumbnail(Blob blob) {
-        // Skip if already inside thumbnails folder
-        if (blob.getName().startsWith(thumbnailFolder + "/")) {
+    /** The last {@code limit} job runs, newest first, with the thumbnails each one produced. */
+    public List<JobRunSummary> getRecentRuns(int limit) {
+        return jobRunHistory.latest(limit).stream()
+                .map(run -> run.toBuilder().outputs(fileUrlService.withUrls(run.getOutputs())).build())
+                .toList();
+    }
+
+    private boolean needsThumbnail(StoredBlob blob) {
+        // Skip anything that is itself a rendition
+        if (isRendition(blob.name())) {
             return false;
         }
+        if (ThumbnailRecords.isMarkedCurrent(blob, thumbnailProperties.renditionSignature())) {
+            return false; // this generation is done with the current profiles
+        }
+        if (ThumbnailRecords.isMarked(blob)) {
+            log.info("🔁 Rendition profiles changed for {} ({}), will regenerate.",
+                    blob.name(), blob.metadata(ThumbnailRecords.RENDITIONS));
+        }
+        return true;
+    }
 
-        Map<String, String> metadata = Optional.ofNullable(blob.getMetadata()).orElse(Map.of());
-        boolean markedAsGenerated = "true".equals(metadata.get("thumbnailGenerated"));
+    /**
+     * The first-profile renditions, read lazily in name order. Both listings are sorted by name,
+     * so a sweep asks for originals in ascending order and only one page of renditions is held
+     * at a time. Should the orders ever disagree, a rendition is merely missed and its original
+     * requeued; the download stage then finds it current and completes it without rendering.
+     */
+    private static final class RenditionCursor {
+        private final Iterator<StoredBlob> renditions;
+        private final int prefixLength;
+        private StoredBlob next;
 
-        if (markedAsGenerated) {
-            // ✅ Check if thumbnail actually exists in the bucket
-            String originalName = blob.getName().replaceFirst("^" + thumbnailFolder + "/+", "");
-            String thumbName = thumbnailFolder + "/" + originalName;
-            Blob thumbBlob = storage.get(bucketName, thumbName);
+        RenditionCursor(Iterable<StoredBlob> renditions, int prefixLength) {
+            this.renditions = renditions.iterator();
+            this.prefixLength = prefixLength;
+            advance();
+        }
 
-            if (thumbBlob == null || !thumbBlob.exists()) {
-                log.warn("⚠️ Thumbnail missing for {}, will regenerate.", blob.getName());
-                return true; // regenerate
+        /** Metadata of the rendition of {@code originalName}, or null; names must not go backwards. */
+        Map<String, String> metadataOf(String originalName) {
+            while (next != null && originalOf(next).compareTo(originalName) < 0) {
+                advance();
             }
-            return false; // thumbnail exists, skip
+            return next != null && originalOf(next).equals(originalName) ? next.metadata() : null;
+        }
+
+        private String originalOf(StoredBlob rendition) {
+            return rendition.name().substring(prefixLength);
+        }
+
+        private void advance() {
+            next = renditions.hasNext() ? renditions.next() : null;
+        }
+    }
+
+    private boolean isRendition(String name) {
+        return thumbnailProperties.isRendition(name);
+    }
+
+    private String renditionName(Rendition rendition, String originalName) {
+        return thumbnailProperties.renditionName(rendition, originalName);
+    }
+
+    private SourceImage download(ThumbnailWorkItem item) throws IOException {
+        Optional<StoredBlob> current = blobStore.get(item.getBucket(), item.getName());
+        if (current.isEmpty() || current.get().generation() > item.getGeneration()
+                || !current.get().isImage() || !needsThumbnail(current.get())) {
+            workQueue.complete(item); // deleted, superseded (queued separately) or already up to date
+            return null;
+        }
+        StoredBlob blob = current.get();
+
+        // Renditions left by an interrupted attempt or an identical upload: check before fetching content
+        String signature = thumbnailProperties.renditionSignature();
+        Map<String, StoredBlob> existing = new HashMap<>();
+        boolean allCurrent = true;
+        for (Rendition rendition : thumbnailProperties.effectiveRenditions()) {
+            Optional<StoredBlob> rendered = blobStore.get(bucketName, renditionName(rendition, blob.name()));
+            rendered.ifPresent(r -> existing.put(rendition.getName(), r));
+            allCurrent &= rendered.isPresent() && ThumbnailRecords.isCurrentFor(rendered.get().metadata(), blob, signature);
         }
-        return true; // not marked yet → needs generation
+        if (allCurrent) {
+            log.info("♻️ Thumbnails of {} are already current, marking without re-rendering", blob.name());
+            markGenerated(blob, existing.values().stream().map(StoredBlob::name).toList());
+            workQueue.complete(item);
+            return null;
+        }
+
+        // Same bytes already rendered under another name: copy those renditions, skip fetch and decode
+        Map<String, StoredBlob> reusable = dedupService.findReusableRenditions(blob);
+        if (!reusable.isEmpty()) {
+            return new SourceImage(item, blob, existing, reusable, null);
+        }
+        byte[] content = blobStore.readAllBytes(blob);
+        meterRegistry.counter("thumbnail.bytes", "direction", "in").increment(content.length);
+        return new SourceImage(item, blob, existing, Map.of(), content);
     }
 
-    private FileMetadata createThumbnail(Bucket bucket, Blob blob) throws IOException {
-        byte[] content = blob.getContent();
-        try (ByteArrayInputStream is = new ByteArrayInputStream(content)) {
-            BufferedImage originalImage = ImageIO.read(is);
-            if (originalImage == null) {
-                log.warn("⚠️ Skipping {} - not a valid image", blob.getName());
+    private RenderedThumbnail render(SourceImage source) throws IOException, InterruptedException {
+        StoredBlob blob = source.blob();
+        if (!source.reusable().isEmpty()) {
+            return new RenderedThumbnail(source.item(), blob, source.existing(), List.of(), source.reusable());
+        }
+        List<Rendition> renditions = thumbnailProperties.effectiveRenditions();
+        // Header first: reserve the decode's memory, then decode subsampled to just above the largest rendition
+        ImageDecoder.Plan plan = imageDecoder.plan(source.content(), renditions);
+        if (plan == null) {
+            log.warn("⚠️ Skipping {} - not a valid image", blob.name());
+            workQueue.complete(source.item());
+            return null;
+        }
+        DecodeAdmission.Permit permit;
+        try {
+            permit = decodeAdmission.admit(blob.name(), decodeAdmission.estimate(plan, renditions));
+        } catch (ServiceBusyException e) {
+            // the image is fine, this instance is short of memory: retry later without using up an attempt
+            log.info("⏳ Deferring {}: {}", blob.name(), e.getMessage());
+            workQueue.defer(source.item(), busyRetryDelay);
+            return null;
+        }
+        try (permit) {
+            ImageDecoder.Decoded decoded = Observation.createNotStarted("thumbnail.decode", observationRegistry)
+                    .observeChecked(() -> imageDecoder.decode(source.content(), plan));
+            if (decoded == null) {
+                log.warn("⚠️ Skipping {} - not a valid image", blob.name());
+                workQueue.complete(source.item());
                 return null;
             }
-            // Resize
-            BufferedImage thumbnail = Scalr.resize(originalImage, Scalr.Method.QUALITY, thumbnailWidth);
-            // Determine format
-            String format = Optional.ofNullable(blob.getContentType())
-                    .map(type -> type.substring(type.lastIndexOf('/') + 1))
-                    .filter(f -> ImageIO.getImageWritersByFormatName(f).hasNext())
-                    .orElse("jpg");
-
-            // ✅ Ensure only one "thumbnails/" prefix
-            String originalName = blob.getName().replaceFirst("^" + thumbnailFolder + "/+", "");
-            String thumbNail = thumbnailFolder + "/" + originalName;
-
-            try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
-                ImageIO.write(thumbnail, format, os);
-
-                Blob created = storage.create(
-                        BlobInfo.newBuilder(bucket.getName(), thumbNail)
-                                .setContentType("image/" + format)
-                                .build(),
-                        os.toByteArray()
-                );
-
-                // Mark original blob as processed
-                Map<String, String> metadata = new HashMap<>(Optional.ofNullable(blob.getMetadata()).orElse(Map.of()));
-                metadata.put("thumbnailGenerated", "true");
-                blob.toBuilder().setMetadata(metadata).build().update();
-
-                // Construct public URL
-                String url = String.format("https://storage.googleapis.com/%s/%s",
-                        created.getBucket(), created.getName());
-
-                log.info("✅ Thumbnail created: {}", created.getName());
-
-                return FileMetadata.builder()
-                        .name(created.getName())
-                        .bucket(created.getBucket())
-                        .contentType(created.getContentType())
-                        .size(created.getSize())
-                        .url(url)
-                        .build();
+            // One decode, every rendition; the rasters are garbage once the encoded outputs exist
+            return new RenderedThumbnail(source.item(), blob, source.existing(),
+                    thumbnailRenderer.render(decoded.image(), decoded.format(), renditions), Map.of());
+        }
+    }
+
+    private List<FileMetadata> upload(RenderedThumbnail rendered) {
+        StoredBlob blob = rendered.source();
+        Map<String, String> renditionMetadata =
+                ThumbnailRecords.renditionMetadata(blob, thumbnailProperties.renditionSignature());
+        List<String> names = new ArrayList<>();
+        List<FileMetadata> created = new ArrayList<>();
+
+        // only replace exactly what we looked at; a concurrent writer makes this fail instead of interleave
+        for (ThumbnailRenderer.Output output : rendered.outputs()) {
+            String name = renditionName(output.rendition(), blob.name());
+            WriteCondition condition = WriteCondition.replacing(rendered.existing().get(output.rendition().getName()));
+            StoredBlob thumbBlob = writeRendition(blob, name, () -> blobStore.put(bucketName, name,
+                    ImageEncoder.contentTypeOf(output.format()), output.content(), renditionMetadata, condition));
+            meterRegistry.counter("thumbnail.bytes", "direction", "out").increment(output.content().length);
+            log.info("✅ Thumbnail created: {} ({}x{})", thumbBlob.name(), output.width(), output.height());
+            names.add(name);
+            created.add(toFileMetadata(thumbBlob));
+        }
+        for (Rendition rendition : thumbnailProperties.effectiveRenditions()) {
+            StoredBlob source = rendered.reused().get(rendition.getName());
+            if (source == null) {
+                continue;
             }
+            String name = renditionName(rendition, blob.name());
+            WriteCondition condition = WriteCondition.replacing(rendered.existing().get(rendition.getName()));
+            StoredBlob thumbBlob = writeRendition(blob, name,
+                    () -> blobStore.copy(source, bucketName, name, renditionMetadata, condition));
+            log.info("♻️ Thumbnail reused: {} copied from {}", thumbBlob.name(), source.name());
+            names.add(name);
+            created.add(toFileMetadata(thumbBlob));
+        }
+        if (!rendered.reused().isEmpty()) {
+            dedupService.recordReuse(blob);
+        }
+
+        markGenerated(blob, names);
+        workQueue.complete(rendered.item());
+        return created;
+    }
+
+    /** Runs a conditional rendition write; losing to a writer of the same content is fine. */
+    private StoredBlob writeRendition(StoredBlob original, String name, Supplier<StoredBlob> write) {
+        StoredBlob thumbBlob;
+        try {
+            thumbBlob = write.get();
+        } catch (PreconditionFailedException e) {
+            thumbBlob = blobStore.get(bucketName, name)
+                    .filter(other -> ThumbnailRecords.isCurrentFor(other.metadata(), original,
+                            thumbnailProperties.renditionSignature()))
+                    .orElseThrow(() -> e);
+            log.info("🤝 {} was written concurrently from the same content, keeping it", name);
         }
+        fileIndexService.index(thumbBlob);
+        return thumbBlob;
+    }
+
+    private static FileMetadata toFileMetadata(StoredBlob thumbBlob) {
+        // public form is what gets stored; FileUrlService signs it on the way out
+        String url = FileUrlService.publicUrl(thumbBlob.bucket(), thumbBlob.name());
+        return FileMetadata.builder()
+                .name(thumbBlob.name())
+                .bucket(thumbBlob.bucket())
+                .contentType(thumbBlob.contentType())
+                .size(thumbBlob.size())
+                .url(url)
+                .createdAt(TimeUtil.toLocalDateTime(thumbBlob.createTime()))
+                .build();
+    }
+
+    /**
+     * Marks the original as rendered from its current generation. The update only applies if
+     * the original is still the generation and metageneration we rendered from; a concurrent
+     * metadata change is retried once on top of the fresh object, a re-upload is left to its
+     * own work item.
+     */
+    private void markGenerated(StoredBlob blob, List<String> renditionNames) {
+        StoredBlob target = blob;
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Map<String, String> metadata = new HashMap<>(target.metadata());
+            for (Rendition rendition : thumbnailProperties.effectiveRenditions()) {
+                String name = renditionName(rendition, blob.name());
+                if (renditionNames.contains(name)) {
+                    metadata.put("thumbnail." + rendition.getName(), name);
+                }
+            }
+            metadata.put(ThumbnailRecords.GENERATED, "true");
+            metadata.put(ThumbnailRecords.GENERATION, String.valueOf(blob.generation()));
+            metadata.put(ThumbnailRecords.RENDITIONS, thumbnailProperties.renditionSignature());
+            try {
+                blobStore.updateMetadata(target, metadata);
+                return;
+            } catch (PreconditionFailedException e) {
+                Optional<StoredBlob> fresh = blobStore.get(blob.bucket(), blob.name());
+                if (fresh.isEmpty() || fresh.get().generation() != blob.generation()) {
+                    log.info("🔀 {} was replaced while rendering; the new generation is queued separately", blob.name());
+                    return;
+                }
+                target = fresh.get();
+            }
+        }
+        throw new PreconditionFailedException("Metadata of " + blob.name() + " keeps changing, giving up for now");
+    }
+
+    /**
+     * @param existing renditions already in the bucket, keyed by profile name
+     * @param reusable renditions of identical content to copy instead of rendering; {@code content} is then null
+     */
+    private record SourceImage(ThumbnailWorkItem item, StoredBlob blob, Map<String, StoredBlob> existing,
+                               Map<String, StoredBlob> reusable, byte[] content) {
+    }
+
+    private record RenderedThumbnail(ThumbnailWorkItem item, StoredBlob source, Map<String, StoredBlob> existing,
+                                     List<ThumbnailRenderer.Output> outputs, Map<String, StoredBlob> reused) {
     }
 }
@@ -0,0 +1,300 @@
+package com.cathay.cdc.thumbnail.poc.service;
+
+import com.cathay.cdc.thumbnail.poc.dto.WorkItemFailure;
+import com.cathay.cdc.thumbnail.poc.entity.ThumbnailWorkItem;
+import com.cathay.cdc.thumbnail.poc.repository.JobLockRepository;
+import com.cathay.cdc.thumbnail.poc.repository.ThumbnailWorkItemRepository;
+import com.cathay.cdc.thumbnail.poc.storage.StoredBlob;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Postgres-backed queue that lets every instance share the thumbnail backlog.
+ * <p>
+ * Originals are enqueued once per generation. Workers lease small batches with
+ * {@code FOR UPDATE SKIP LOCKED}, so each item is handed to exactly one instance, and mark them
+ * done when finished. A lease that is not completed in time (the worker died) simply expires
+ * and the item is claimed again. A failed attempt is recorded with its error and retried after
+ * an exponential backoff ({@code backoff-initial}, doubling up to {@code backoff-max}); after
+ * {@code max-attempts} the item is quarantined, so a poison image stops costing a decode every
+ * run, until {@link #requeue} puts it back.
+ * <p>
+ * While work is in progress a heartbeat renews this instance's leases and job locks every third
+ * of their duration, so a long listing or items waiting in the pipeline's queues do not lose
+ * them to another instance. Only a dead instance's leases and locks run out.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ThumbnailWorkQueue {
+
+    private final ThumbnailWorkItemRepository workItemRepository;
+    private final JobLockRepository jobLockRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${thumbnail.work.owner:${HOSTNAME:local}}")
+    private String ownerPrefix;
+
+    @Value("${thumbnail.work.lease-seconds:300}")
+    private long leaseSeconds;
+
+    @Value("${thumbnail.work.claim-batch:16}")
+    private int claimBatch;
+
+    @Value("${thumbnail.work.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${thumbnail.work.backoff-initial:30s}")
+    private Duration backoffInitial;
+
+    @Value("${thumbnail.work.backoff-max:1h}")
+    private Duration backoffMax;
+
+    @Value("${thumbnail.work.lock-seconds:900}")
+    private long lockSeconds;
+
+    @Value("${thumbnail.work.done-retention-days:7}")
+    private int doneRetentionDays;
+
+    /** Identifies this instance in leases and locks; unique per process so restarts do not inherit leases. */
+    private String owner;
+
+    /** Ids of the items this instance has leased and not finished, with the {@link Claims} they came from. */
+    private final Map<Long, Claims> heldLeases = new ConcurrentHashMap<>();
+    private final Set<String> heldLocks = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService heartbeat;
+
+    @PostConstruct
+    private void init() {
+        this.owner = ownerPrefix + "-" + UUID.randomUUID().toString().substring(0, 8);
+        // shared across instances, so every instance reports the same number
+        Gauge.builder("thumbnail.backlog", workItemRepository, repository -> repository.countByState(ThumbnailWorkItem.PENDING))
+                .description("Work items waiting to be rendered, all instances")
+                .register(meterRegistry);
+        Gauge.builder("thumbnail.quarantined", workItemRepository, repository -> repository.countByState(ThumbnailWorkItem.QUARANTINED))
+                .description("Work items given up on after max-attempts failures, all instances")
+                .register(meterRegistry);
+        long heartbeatSeconds = Math.max(1, Math.min(leaseSeconds, lockSeconds) / 3);
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "thumbnail-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat.scheduleWithFixedDelay(this::renew, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+        log.info("Thumbnail work queue ready: owner={}, lease={}s, batch={}, maxAttempts={}, heartbeat={}s",
+                owner, leaseSeconds, claimBatch, maxAttempts, heartbeatSeconds);
+    }
+
+    @PreDestroy
+    private void shutdown() {
+        heartbeat.shutdownNow();
+    }
+
+    /** Extends every lease and lock this instance still holds. */
+    void renew() {
+        try {
+            List<Long> leases = List.copyOf(heldLeases.keySet());
+            if (!leases.isEmpty()) {
+                int renewed = workItemRepository.renewLeases(leases, owner, leaseSeconds);
+                if (renewed < leases.size()) {
+                    log.warn("Renewed {} of {} leases; the rest were lost or finished", renewed, leases.size());
+                }
+            }
+            for (String lockName : heldLocks) {
+                if (jobLockRepository.renew(lockName, owner, lockSeconds) == 0) {
+                    heldLocks.remove(lockName);
+                    log.error("Lost {} to another instance while still working under it", lockName);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Lease heartbeat failed: {}", e.getMessage());
+        }
+    }
+
+    public String owner() {
+        return owner;
+    }
+
+    /** Queues {@code blob} unless its generation is already queued or done. */
+    public boolean enqueue(StoredBlob blob) {
+        return workItemRepository.enqueue(blob.bucket(), blob.name(), blob.generation()) > 0;
+    }
+
+    /** Queues {@code blob} even if its generation was done before, e.g. when its thumbnail went missing. */
+    public boolean reopen(StoredBlob blob) {
+        return workItemRepository.reopen(blob.bucket(), blob.name(), blob.generation()) > 0;
+    }
+
+    /**
+     * Leased items, claimed a batch at a time as the caller iterates. Claiming lazily keeps the
+     * number of leased-but-unstarted items down to what the pipeline can actually take on.
+     * Leases are renewed until the item is completed or failed, or the claims are closed.
+     */
+    public Claims claims() {
+        return new Claims();
+    }
+
+    /** One run's claims; closing it stops renewing leases the run left unfinished. */
+    public final class Claims implements Iterable<ThumbnailWorkItem>, AutoCloseable {
+
+        private Claims() {
+        }
+
+        @Override
+        public Iterator<ThumbnailWorkItem> iterator() {
+            return new Iterator<>() {
+                private Iterator<ThumbnailWorkItem> batch = Collections.emptyIterator();
+                private boolean exhausted;
+
+                @Override
+                public boolean hasNext() {
+                    if (!batch.hasNext() && !exhausted) {
+                        List<ThumbnailWorkItem> claimed = workItemRepository.claim(owner, leaseSeconds, maxAttempts, claimBatch);
+                        log.debug("{} claimed {} work items", owner, claimed.size());
+                        claimed.forEach(item -> heldLeases.put(item.getId(), Claims.this));
+                        exhausted = claimed.isEmpty();
+                        batch = claimed.iterator();
+                    }
+                    return batch.hasNext();
+                }
+
+                @Override
+                public ThumbnailWorkItem next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return batch.next();
+                }
+            };
+        }
+
+        @Override
+        public void close() {
+            heldLeases.values().removeIf(claims -> claims == this);
+        }
+    }
+
+    public void complete(ThumbnailWorkItem item) {
+        heldLeases.remove(item.getId());
+        if (workItemRepository.complete(item.getId(), owner) == 0) {
+            log.warn("Lease on {} (generation {}) was lost before completion", item.getName(), item.getGeneration());
+        }
+    }
+
+    /**
+     * Records a failed attempt on a leased item: the lease is released and the item becomes
+     * claimable again after the backoff, or is quarantined if this was its last attempt.
+     */
+    public void fail(ThumbnailWorkItem item, Throwable error) {
+        heldLeases.remove(item.getId());
+        Duration backoff = backoffAfter(item.getAttempts());
+        String message = error.getClass().getSimpleName() + ": " + error.getMessage();
+        if (message.length() > 1000) {
+            message = message.substring(0, 1000);
+        }
+        if (workItemRepository.fail(item.getId(), owner, message, backoff.toSeconds(), maxAttempts) == 0) {
+            log.warn("Lease on {} (generation {}) was lost before its failure was recorded",
+                    item.getName(), item.getGeneration());
+        } else if (item.getAttempts() >= maxAttempts) {
+            meterRegistry.counter("thumbnail.work.quarantined").increment();
+            log.warn("Quarantined {} (generation {}) after {} attempts: {}",
+                    item.getName(), item.getGeneration(), item.getAttempts(), message);
+        } else {
+            log.info("Attempt {} of {} on {} failed, next try in {}s",
+                    item.getAttempts(), maxAttempts, item.getName(), backoff.toSeconds());
+        }
+    }
+
+    /**
+     * Puts a leased item back for later without counting the attempt, for work refused because
+     * this instance was busy rather than because the item is bad. It is never quarantined this way.
+     */
+    public void defer(ThumbnailWorkItem item, Duration delay) {
+        heldLeases.remove(item.getId());
+        if (workItemRepository.defer(item.getId(), owner, delay.toSeconds()) == 0) {
+            log.warn("Lease on {} (generation {}) was lost before it could be deferred",
+                    item.getName(), item.getGeneration());
+        } else {
+            log.info("Deferred {} (generation {}) for {}s", item.getName(), item.getGeneration(), delay.toSeconds());
+        }
+    }
+
+    /** Items that have failed in {@code state} (PENDING = still retrying, QUARANTINED), most recent first. */
+    public List<WorkItemFailure> failures(String state, int limit) {
+        return workItemRepository.findByStateAndLastErrorIsNotNullOrderByUpdatedAtDesc(state, PageRequest.of(0, limit))
+                .stream()
+                .map(item -> new WorkItemFailure(item.getId(), item.getBucket(), item.getName(), item.getGeneration(),
+                        item.getState(), item.getAttempts(), item.getLastError(), item.getNextAttemptAt(),
+                        item.getUpdatedAt()))
+                .toList();
+    }
+
+    /** Puts one quarantined item ({@code null} = all of them) back in the queue with fresh attempts. */
+    public int requeue(Long id) {
+        int requeued = workItemRepository.requeueQuarantined(id);
+        log.info("Requeued {} quarantined work items", requeued);
+        return requeued;
+    }
+
+    /** Quarantines items whose worker died on their last attempt, so they do not sit pending forever. */
+    public void quarantineAbandoned() {
+        int quarantined = workItemRepository.quarantineAbandoned(maxAttempts);
+        if (quarantined > 0) {
+            log.warn("Quarantined {} work items abandoned on their last attempt", quarantined);
+        }
+    }
+
+    Duration backoffAfter(int attempts) {
+        int doublings = Math.min(Math.max(attempts - 1, 0), 20);
+        Duration backoff = backoffInitial.multipliedBy(1L << doublings);
+        return backoff.compareTo(backoffMax) > 0 ? backoffMax : backoff;
+    }
+
+    /** Whether this instance still holds {@code lockName}; false once the heartbeat found it taken over. */
+    public boolean holds(String lockName) {
+        return heldLocks.contains(lockName);
+    }
+
+    /** Runs {@code task} only if no other instance holds {@code lockName}; returns whether it ran. */
+    public boolean runExclusively(String lockName, Runnable task) {
+        if (jobLockRepository.tryAcquire(lockName, owner, lockSeconds) == 0) {
+            log.info("{} is held by another instance, skipping", lockName);
+            return false;
+        }
+        heldLocks.add(lockName);
+        try {
+            task.run();
+            return true;
+        } finally {
+            heldLocks.remove(lockName);
+            jobLockRepository.release(lockName, owner);
+        }
+    }
+
+    public void pruneDone() {
+        int removed = workItemRepository.pruneDone(doneRetentionDays);
+        if (removed > 0) {
+            log.info("Pruned {} finished work items older than {} days", removed, doneRetentionDays);
+        }
+    }
+}
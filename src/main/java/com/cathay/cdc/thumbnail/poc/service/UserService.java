@@ -1,23 +1,114 @@
 package com.cathay.cdc.thumbnail.poc.service;
 
-import com.cathay.cdc.thumbnail.poc.entity.User;
+import com.cathay.cdc.thumbnail.poc.dto.UserAccount;
+import com.cathay.cdc.thumbnail.poc.dto.UserChangedEvent;
+import com.cathay.cdc.thumbnail.poc.dto.UserPage;
+import com.cathay.cdc.thumbnail.poc.dto.UserSummary;
 import com.cathay.cdc.thumbnail.poc.repository.UserRepository;
-import lombok.RequiredArgsConstructor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
+import java.time.Duration;
+import java.util.*;
 
+/**
+ * Read model of users and roles, built from projections instead of entities.
+ * <p>
+ * Accounts (credentials and roles) are loaded with one join and cached in
+ * {@code userAccountCache} for {@code users.cache.ttl}. A {@link UserChangedEvent} clears the
+ * cache, but it is only published for edits to the user row made by this instance; role-only
+ * changes, and anything written by another instance or straight to the database, are seen once
+ * the entry expires. {@code users.cache.ttl} is therefore the longest a revoked role or disabled
+ * account can still log in. Unknown usernames are not cached.
+ */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class UserService {
+
+    public static final String CACHE_NAME = "userAccountCache";
+
     private final UserRepository userRepository;
+    private final int maxPageSize;
+    private final Cache<String, UserAccount> accounts;
+
+    public UserService(UserRepository userRepository,
+                       @Value("${users.cache.ttl:5m}") Duration ttl,
+                       @Value("${users.cache.max-entries:1000}") long maxEntries,
+                       @Value("${users.list.max-size:200}") int maxPageSize) {
+        this.userRepository = userRepository;
+        this.maxPageSize = maxPageSize;
+        this.accounts = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    public Optional<UserAccount> findAccount(String username) {
+        UserAccount cached = accounts.getIfPresent(username);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<UserAccount> account = loadAccount(username);
+        account.ifPresent(a -> accounts.put(username, a));
+        return account;
+    }
+
+    /** Users ordered by id, with their roles; three queries per page (rows, count, roles) whatever its size. */
+    public UserPage listUsers(int page, int size) {
+        if (page < 0) {
+            throw new IllegalArgumentException("page must not be negative");
+        }
+        if (size < 1 || size > maxPageSize) {
+            throw new IllegalArgumentException("size must be between 1 and " + maxPageSize);
+        }
+        Page<UserRepository.SummaryRow> rows = userRepository.findSummaries(PageRequest.of(page, size, Sort.by("id")));
+        Map<Long, List<String>> roles = new HashMap<>();
+        if (rows.hasContent()) {
+            List<Long> ids = rows.map(UserRepository.SummaryRow::getId).getContent();
+            for (UserRepository.RoleRow row : userRepository.findRoleRows(ids)) {
+                roles.computeIfAbsent(row.getUserId(), id -> new ArrayList<>()).add(row.getRole());
+            }
+        }
+        List<UserSummary> items = rows.stream()
+                .map(row -> new UserSummary(row.getId(), row.getUsername(), row.isEnabled(), row.getCreatedAt(),
+                        roles.getOrDefault(row.getId(), List.of()).stream().sorted().toList()))
+                .toList();
+        log.info("Listed {} of {} users (page {})", items.size(), rows.getTotalElements(), page);
+        return new UserPage(items, page, size, rows.getTotalElements());
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        // renames leave the old name behind, and users are few: drop everything
+        accounts.invalidateAll();
+        log.info("User {} changed, account cache cleared", event.username());
+    }
+
+    /** The underlying cache, for metrics. */
+    public Cache<?, ?> nativeCache() {
+        return accounts;
+    }
 
-    public List<User> findAll() {
-        log.info("Fetching all users from database...");
-        List<User> users = userRepository.findAll();
-        log.info("Found {} users", users.size());
-        return users;
+    private Optional<UserAccount> loadAccount(String username) {
+        List<UserRepository.AccountRow> rows = userRepository.findAccountRows(username);
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        UserRepository.AccountRow first = rows.get(0);
+        Set<String> roles = new HashSet<>();
+        for (UserRepository.AccountRow row : rows) {
+            if (row.getRole() != null) {
+                roles.add(row.getRole());
+            }
+        }
+        return Optional.of(new UserAccount(first.getId(), first.getUsername(), first.getPassword(), first.isEnabled(), roles));
     }
 }
@@ -0,0 +1,44 @@
+package com.cathay.cdc.thumbnail.poc.storage;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.zip.CRC32C;
+
+/**
+ * Computes CRC32C / MD5 in the same base64 encoding GCS reports, so the offline backends
+ * expose comparable checksums.
+ */
+final class BlobDigests {
+
+    private final CRC32C crc32c = new CRC32C();
+    private final MessageDigest md5;
+
+    BlobDigests() {
+        try {
+            this.md5 = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    void update(byte[] buffer, int offset, int length) {
+        crc32c.update(buffer, offset, length);
+        md5.update(buffer, offset, length);
+    }
+
+    String crc32c() {
+        return Base64.getEncoder().encodeToString(ByteBuffer.allocate(4).putInt((int) crc32c.getValue()).array());
+    }
+
+    String md5() {
+        return Base64.getEncoder().encodeToString(md5.digest());
+    }
+
+    static BlobDigests of(byte[] content) {
+        BlobDigests digests = new BlobDigests();
+        digests.update(content, 0, content.length);
+        return digests;
+    }
+}
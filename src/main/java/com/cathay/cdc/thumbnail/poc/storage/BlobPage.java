@@ -0,0 +1,9 @@
+package com.cathay.cdc.thumbnail.poc.storage;
+
+import java.util.List;
+
+/**
+ * One page of a listing; {@code nextPageToken} is {@code null} on the last page.
+ */
+public record BlobPage(List<StoredBlob> blobs, String nextPageToken) {
+}
@@ -0,0 +1,103 @@
+package com.cathay.cdc.thumbnail.poc.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+/**
+ * Object storage as used by the file and thumbnail services. The active backend is selected
+ * with {@code blobstore.type}: {@code gcs} (default), {@code local} or {@code memory}.
+ */
+public interface BlobStore {
+
+    /**
+     * Lists objects in name order. {@code prefix} and {@code pageToken} may be {@code null}.
+     */
+    BlobPage list(String bucket, String prefix, String pageToken, int pageSize);
+
+    Optional<StoredBlob> get(String bucket, String name);
+
+    /** Reads the whole content of exactly the generation described by {@code blob}. */
+    byte[] readAllBytes(StoredBlob blob) throws IOException;
+
+    /** Copies {@code length} bytes starting at {@code offset} to {@code out}. */
+    void read(StoredBlob blob, long offset, long length, OutputStream out) throws IOException;
+
+    default StoredBlob put(String bucket, String name, String contentType, byte[] content) {
+        return put(bucket, name, contentType, content, Map.of(), WriteCondition.NONE);
+    }
+
+    /**
+     * Writes a new generation with the given custom metadata, provided {@code condition} holds
+     * for the live object; throws {@link PreconditionFailedException} otherwise.
+     */
+    default StoredBlob put(String bucket, String name, String contentType, byte[] content,
+                           Map<String, String> metadata, WriteCondition condition) {
+        return put(bucket, name, contentType, content, metadata, condition, null);
+    }
+
+    /**
+     * As above, and the object is served with {@code cacheControl} when fetched directly or
+     * through a signed URL.
+     */
+    StoredBlob put(String bucket, String name, String contentType, byte[] content,
+                   Map<String, String> metadata, WriteCondition condition, String cacheControl);
+
+    /** Streams {@code content} into a new generation without buffering it as a whole. */
+    StoredBlob put(String bucket, String name, String contentType, InputStream content) throws IOException;
+
+    /**
+     * Copies exactly the generation described by {@code source} to {@code bucket/name} without
+     * moving the content through this process where the backend allows it. The copy gets
+     * {@code metadata} as its custom metadata; {@code condition} applies to the target.
+     */
+    StoredBlob copy(StoredBlob source, String bucket, String name, Map<String, String> metadata,
+                    WriteCondition condition);
+
+    /**
+     * Replaces the custom metadata of the object, provided it still has the generation and
+     * metageneration of {@code blob}; throws {@link PreconditionFailedException} otherwise.
+     */
+    StoredBlob updateMetadata(StoredBlob blob, Map<String, String> metadata);
+
+    /**
+     * A URL that lets anyone holding it read {@code bucket/name} for {@code ttl} without going
+     * through this service.
+     */
+    String signUrl(String bucket, String name, Duration ttl);
+
+    /**
+     * Lazily iterates every page of a listing.
+     */
+    default Iterable<StoredBlob> listAll(String bucket, String prefix, int pageSize) {
+        return () -> new Iterator<>() {
+            private BlobPage page = list(bucket, prefix, null, pageSize);
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                while (index >= page.blobs().size()) {
+                    if (page.nextPageToken() == null) {
+                        return false;
+                    }
+                    page = list(bucket, prefix, page.nextPageToken(), pageSize);
+                    index = 0;
+                }
+                return true;
+            }
+
+            @Override
+            public StoredBlob next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.blobs().get(index++);
+            }
+        };
+    }
+}
@@ -0,0 +1,210 @@
+package com.cathay.cdc.thumbnail.poc.storage;
+
+import com.google.api.gax.paging.Page;
+import com.google.cloud.ReadChannel;
+import com.google.cloud.WriteChannel;
+import com.google.cloud.storage.*;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "blobstore.type", havingValue = "gcs", matchIfMissing = true)
+public class GcsBlobStore implements BlobStore {
+
+    private final Storage storage;
+
+    @Value("${gcp.download.chunk-size:262144}") // 256 KB
+    private int readChunkSize;
+
+    @Value("${gcp.upload.chunk-size:262144}") // multiple of 256 KB
+    private int writeChunkSize;
+
+    @Override
+    public BlobPage list(String bucket, String prefix, String pageToken, int pageSize) {
+        List<Storage.BlobListOption> options = new ArrayList<>();
+        options.add(Storage.BlobListOption.pageSize(pageSize));
+        if (prefix != null) {
+            options.add(Storage.BlobListOption.prefix(prefix));
+        }
+        if (pageToken != null) {
+            options.add(Storage.BlobListOption.pageToken(pageToken));
+        }
+        Page<Blob> page = storage.list(bucket, options.toArray(new Storage.BlobListOption[0]));
+        List<StoredBlob> blobs = new ArrayList<>();
+        for (Blob blob : page.getValues()) {
+            if (!blob.isDirectory()) {
+                blobs.add(toStoredBlob(blob));
+            }
+        }
+        return new BlobPage(blobs, page.hasNextPage() ? page.getNextPageToken() : null);
+    }
+
+    @Override
+    public Optional<StoredBlob> get(String bucket, String name) {
+        return Optional.ofNullable(storage.get(bucket, name)).map(GcsBlobStore::toStoredBlob);
+    }
+
+    @Override
+    public byte[] readAllBytes(StoredBlob blob) {
+        return storage.readAllBytes(blobIdOf(blob));
+    }
+
+    @Override
+    public void read(StoredBlob blob, long offset, long length, OutputStream out) throws IOException {
+        try (ReadChannel reader = storage.reader(blobIdOf(blob))) {
+            reader.setChunkSize(readChunkSize);
+            if (offset > 0) {
+                reader.seek(offset);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(readChunkSize);
+            long remaining = length;
+            while (remaining > 0) {
+                buffer.clear();
+                if (remaining < buffer.capacity()) {
+                    buffer.limit((int) remaining);
+                }
+                int read = reader.read(buffer);
+                if (read < 0) {
+                    break;
+                }
+                out.write(buffer.array(), 0, read);
+                remaining -= read;
+            }
+            out.flush();
+        }
+    }
+
+    @Override
+    public StoredBlob put(String bucket, String name, String contentType, byte[] content,
+                          Map<String, String> metadata, WriteCondition condition, String cacheControl) {
+        BlobInfo blobInfo = BlobInfo.newBuilder(bucket, name)
+                .setContentType(contentType)
+                .setCacheControl(cacheControl)
+                .setMetadata(metadata.isEmpty() ? null : metadata)
+                .build();
+        List<Storage.BlobTargetOption> options = new ArrayList<>();
+        if (condition.generation() != null) {
+            options.add(condition.generation() == 0
+                    ? Storage.BlobTargetOption.doesNotExist()
+                    : Storage.BlobTargetOption.generationMatch(condition.generation()));
+        }
+        try {
+            return toStoredBlob(storage.create(blobInfo, content, options.toArray(new Storage.BlobTargetOption[0])));
+        } catch (StorageException e) {
+            throw translate(e, name);
+        }
+    }
+
+    @Override
+    public StoredBlob put(String bucket, String name, String contentType, InputStream content) throws IOException {
+        BlobInfo blobInfo = BlobInfo.newBuilder(bucket, name).setContentType(contentType).build();
+        try (WriteChannel writer = storage.writer(blobInfo)) {
+            writer.setChunkSize(writeChunkSize);
+            byte[] chunk = new byte[writeChunkSize];
+            int read;
+            while ((read = content.read(chunk)) != -1) {
+                ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, read);
+                while (buffer.hasRemaining()) {
+                    writer.write(buffer);
+                }
+            }
+        }
+        return get(bucket, name).orElseThrow(() -> new StorageException(404, "Object vanished after upload: " + name));
+    }
+
+    @Override
+    public StoredBlob copy(StoredBlob source, String bucket, String name, Map<String, String> metadata,
+                           WriteCondition condition) {
+        BlobInfo target = BlobInfo.newBuilder(bucket, name)
+                .setContentType(source.contentType())
+                .setCacheControl(source.cacheControl())
+                .setMetadata(metadata.isEmpty() ? null : metadata)
+                .build();
+        List<Storage.BlobTargetOption> options = new ArrayList<>();
+        if (condition.generation() != null) {
+            options.add(condition.generation() == 0
+                    ? Storage.BlobTargetOption.doesNotExist()
+                    : Storage.BlobTargetOption.generationMatch(condition.generation()));
+        }
+        Storage.CopyRequest request = Storage.CopyRequest.newBuilder()
+                .setSource(blobIdOf(source))
+                .setTarget(target, options.toArray(new Storage.BlobTargetOption[0]))
+                .build();
+        try {
+            // rewrite happens inside GCS; getResult() keeps calling rewrite until it is done
+            return toStoredBlob(storage.copy(request).getResult());
+        } catch (StorageException e) {
+            throw translate(e, name);
+        }
+    }
+
+    @Override
+    public StoredBlob updateMetadata(StoredBlob blob, Map<String, String> metadata) {
+        // GCS merges the keys it is sent; a null value is what removes one
+        Map<String, String> replacement = new HashMap<>();
+        blob.metadata().keySet().forEach(key -> replacement.put(key, null));
+        replacement.putAll(metadata);
+        BlobInfo blobInfo = BlobInfo.newBuilder(BlobId.of(blob.bucket(), blob.name())).setMetadata(replacement).build();
+        try {
+            return toStoredBlob(storage.update(blobInfo,
+                    Storage.BlobTargetOption.generationMatch(blob.generation()),
+                    Storage.BlobTargetOption.metagenerationMatch(blob.metageneration())));
+        } catch (StorageException e) {
+            throw translate(e, blob.name());
+        }
+    }
+
+    /**
+     * V4 signed URL. Needs credentials that can sign: a service account key, or on Cloud Run the
+     * runtime service account with {@code iam.serviceAccounts.signBlob} on itself.
+     */
+    @Override
+    public String signUrl(String bucket, String name, Duration ttl) {
+        return storage.signUrl(BlobInfo.newBuilder(bucket, name).build(), ttl.toSeconds(), TimeUnit.SECONDS,
+                Storage.SignUrlOption.withV4Signature()).toString();
+    }
+
+    private static RuntimeException translate(StorageException e, String name) {
+        if (e.getCode() == 412) {
+            return new PreconditionFailedException("Precondition failed for " + name, e);
+        }
+        return e;
+    }
+
+    private static BlobId blobIdOf(StoredBlob blob) {
+        return BlobId.of(blob.bucket(), blob.name(), blob.generation());
+    }
+
+    static StoredBlob toStoredBlob(Blob blob) {
+        return new StoredBlob(
+                blob.getBucket(),
+                blob.getName(),
+                blob.getContentType(),
+                Optional.ofNullable(blob.getSize()).orElse(0L),
+                Optional.ofNullable(blob.getGeneration()).orElse(0L),
+                Optional.ofNullable(blob.getMetageneration()).orElse(0L),
+                blob.getCreateTime(),
+                blob.getUpdateTime(),
+                blob.getCrc32c(),
+                blob.getMd5(),
+                blob.getCacheControl(),
+                blob.getMetadata());
+    }
+}
@@ -0,0 +1,138 @@
+package com.cathay.cdc.thumbnail.poc.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Heap-only backend for load tests and offline runs. Content is lost on restart.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "blobstore.type", havingValue = "memory")
+public class InMemoryBlobStore implements BlobStore {
+
+    private record Entry(StoredBlob blob, byte[] content) {
+    }
+
+    private final ConcurrentSkipListMap<String, Entry> objects = new ConcurrentSkipListMap<>();
+    private final AtomicLong generations = new AtomicLong(System.currentTimeMillis() * 1000);
+    private final LocalUrlSigner urlSigner;
+
+    @Override
+    public BlobPage list(String bucket, String prefix, String pageToken, int pageSize) {
+        String from = key(bucket, pageToken != null ? pageToken : Objects.requireNonNullElse(prefix, ""));
+        ConcurrentNavigableMap<String, Entry> tail = objects.tailMap(from, pageToken == null);
+        String bucketPrefix = key(bucket, Objects.requireNonNullElse(prefix, ""));
+
+        List<StoredBlob> blobs = new ArrayList<>(pageSize);
+        for (Map.Entry<String, Entry> e : tail.entrySet()) {
+            if (!e.getKey().startsWith(bucketPrefix)) {
+                break;
+            }
+            if (blobs.size() == pageSize) {
+                return new BlobPage(blobs, blobs.get(blobs.size() - 1).name());
+            }
+            blobs.add(e.getValue().blob());
+        }
+        return new BlobPage(blobs, null);
+    }
+
+    @Override
+    public Optional<StoredBlob> get(String bucket, String name) {
+        return Optional.ofNullable(objects.get(key(bucket, name))).map(Entry::blob);
+    }
+
+    @Override
+    public byte[] readAllBytes(StoredBlob blob) throws IOException {
+        return entryOf(blob).content().clone();
+    }
+
+    @Override
+    public void read(StoredBlob blob, long offset, long length, OutputStream out) throws IOException {
+        byte[] content = entryOf(blob).content();
+        int start = (int) Math.min(offset, content.length);
+        int count = (int) Math.min(length, content.length - start);
+        out.write(content, start, count);
+        out.flush();
+    }
+
+    @Override
+    public StoredBlob put(String bucket, String name, String contentType, byte[] content,
+                          Map<String, String> metadata, WriteCondition condition, String cacheControl) {
+        byte[] copy = content.clone();
+        BlobDigests digests = BlobDigests.of(copy);
+        Entry written = objects.compute(key(bucket, name), (k, existing) -> {
+            long currentGeneration = existing == null ? 0 : existing.blob().generation();
+            if (!condition.isSatisfiedBy(currentGeneration)) {
+                throw new PreconditionFailedException("Precondition failed for " + name
+                        + ": expected generation " + condition.generation() + ", found " + currentGeneration);
+            }
+            long now = System.currentTimeMillis();
+            return new Entry(new StoredBlob(bucket, name, contentType, copy.length, generations.incrementAndGet(), 1,
+                    now, now, digests.crc32c(), digests.md5(), cacheControl, metadata), copy);
+        });
+        return written.blob();
+    }
+
+    @Override
+    public StoredBlob put(String bucket, String name, String contentType, InputStream content) throws IOException {
+        return put(bucket, name, contentType, content.readAllBytes());
+    }
+
+    @Override
+    public StoredBlob copy(StoredBlob source, String bucket, String name, Map<String, String> metadata,
+                           WriteCondition condition) {
+        try {
+            return put(bucket, name, source.contentType(), entryOf(source).content(), metadata, condition,
+                    source.cacheControl());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to copy " + source.name(), e);
+        }
+    }
+
+    @Override
+    public StoredBlob updateMetadata(StoredBlob blob, Map<String, String> metadata) {
+        Entry updated = objects.computeIfPresent(key(blob.bucket(), blob.name()), (k, entry) -> {
+            StoredBlob current = entry.blob();
+            if (current.generation() != blob.generation() || current.metageneration() != blob.metageneration()) {
+                throw new PreconditionFailedException("Object " + blob.name() + " changed since it was read");
+            }
+            return new Entry(new StoredBlob(current.bucket(), current.name(), current.contentType(), current.size(),
+                    current.generation(), current.metageneration() + 1, current.createTime(),
+                    System.currentTimeMillis(), current.crc32c(), current.md5(), current.cacheControl(), metadata),
+                    entry.content());
+        });
+        if (updated == null) {
+            throw new NoSuchElementException("Object not found: " + blob.name());
+        }
+        return updated.blob();
+    }
+
+    @Override
+    public String signUrl(String bucket, String name, Duration ttl) {
+        return urlSigner.sign(bucket, name, ttl);
+    }
+
+    private Entry entryOf(StoredBlob blob) throws IOException {
+        Entry entry = objects.get(key(blob.bucket(), blob.name()));
+        if (entry == null || entry.blob().generation() != blob.generation()) {
+            throw new IOException("Generation " + blob.generation() + " of " + blob.name() + " no longer exists");
+        }
+        return entry;
+    }
+
+    private static String key(String bucket, String name) {
+        return bucket + "/" + name;
+    }
+}
@@ -0,0 +1,337 @@
+package com.cathay.cdc.thumbnail.poc.storage;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Stores objects as plain files under {@code <root>/<bucket>/objects/<name>} with a
+ * properties sidecar under {@code <root>/<bucket>/meta/} holding content type, generation,
+ * checksums and custom metadata. Reads go through {@link FileChannel}: whole-object reads are
+ * memory-mapped and ranged reads use {@code transferTo}.
+ * <p>
+ * Object names are kept in a sorted in-memory index, built by one walk of the root at startup
+ * and updated on every write, so a listing page costs a seek plus one sidecar read per object
+ * rather than a walk of the whole bucket. The store assumes it is the only writer of its root.
+ * <p>
+ * {@code blobstore.local.latency} adds a fixed delay to every metadata lookup, listing page and
+ * write, standing in for the storage round trip when load testing without GCS.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "blobstore.type", havingValue = "local")
+public class LocalFileSystemBlobStore implements BlobStore {
+
+    private static final String METADATA_PREFIX = "metadata.";
+
+    @Value("${blobstore.local.root:${java.io.tmpdir}/blobstore}")
+    private String rootPath;
+
+    @Value("${blobstore.local.latency:0ms}")
+    private Duration latency;
+
+    private Path root;
+    private final AtomicLong generations = new AtomicLong(System.currentTimeMillis() * 1000);
+    /** Serializes the check-and-swap of conditional writes within this process. */
+    private final ReentrantLock commitLock = new ReentrantLock();
+    /** Sorted object names per bucket. */
+    private final Map<String, NavigableSet<String>> objectNames = new ConcurrentHashMap<>();
+    private final LocalUrlSigner urlSigner;
+
+    @PostConstruct
+    private void init() throws IOException {
+        root = Paths.get(rootPath);
+        Files.createDirectories(root);
+        long indexed = 0;
+        try (Stream<Path> buckets = Files.list(root)) {
+            for (Path bucket : buckets.filter(Files::isDirectory).toList()) {
+                indexed += index(bucket.getFileName().toString());
+            }
+        }
+        log.info("Local blob store rooted at {} ({} objects)", root.toAbsolutePath(), indexed);
+    }
+
+    private long index(String bucket) throws IOException {
+        Path objects = objectsDir(bucket);
+        NavigableSet<String> bucketNames = namesOf(bucket);
+        if (!Files.isDirectory(objects)) {
+            return 0;
+        }
+        try (Stream<Path> files = Files.walk(objects)) {
+            files.filter(Files::isRegularFile)
+                    .filter(p -> !p.getFileName().toString().startsWith(".upload-"))
+                    .map(p -> objects.relativize(p).toString().replace(File.separatorChar, '/'))
+                    .forEach(bucketNames::add);
+        }
+        return bucketNames.size();
+    }
+
+    private NavigableSet<String> namesOf(String bucket) {
+        return objectNames.computeIfAbsent(bucket, b -> new ConcurrentSkipListSet<>());
+    }
+
+    @Override
+    public BlobPage list(String bucket, String prefix, String pageToken, int pageSize) {
+        simulateRoundTrip();
+        String from = pageToken != null ? pageToken : Objects.requireNonNullElse(prefix, "");
+        List<String> names = new ArrayList<>(pageSize + 1);
+        for (String name : namesOf(bucket).tailSet(from, pageToken == null)) {
+            if ((prefix != null && !name.startsWith(prefix)) || names.size() > pageSize) {
+                break;
+            }
+            names.add(name);
+        }
+
+        List<StoredBlob> blobs = new ArrayList<>(Math.min(names.size(), pageSize));
+        for (String name : names.subList(0, Math.min(names.size(), pageSize))) {
+            get(bucket, name).ifPresent(blobs::add);
+        }
+        String next = names.size() > pageSize ? names.get(pageSize - 1) : null;
+        return new BlobPage(blobs, next);
+    }
+
+    @Override
+    public Optional<StoredBlob> get(String bucket, String name) {
+        simulateRoundTrip();
+        Path file = objectFile(bucket, name);
+        Path meta = metaFile(bucket, name);
+        if (!Files.isRegularFile(file) || !Files.isRegularFile(meta)) {
+            return Optional.empty();
+        }
+        Properties props = new Properties();
+        try (Reader reader = Files.newBufferedReader(meta)) {
+            props.load(reader);
+            Map<String, String> metadata = new HashMap<>();
+            for (String key : props.stringPropertyNames()) {
+                if (key.startsWith(METADATA_PREFIX)) {
+                    metadata.put(key.substring(METADATA_PREFIX.length()), props.getProperty(key));
+                }
+            }
+            return Optional.of(new StoredBlob(bucket, name,
+                    props.getProperty("contentType"),
+                    Files.size(file),
+                    Long.parseLong(props.getProperty("generation", "0")),
+                    Long.parseLong(props.getProperty("metageneration", "1")),
+                    Long.parseLong(props.getProperty("createTime", "0")),
+                    Long.parseLong(props.getProperty("updateTime", "0")),
+                    props.getProperty("crc32c"),
+                    props.getProperty("md5"),
+                    props.getProperty("cacheControl"),
+                    metadata));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read metadata of " + name, e);
+        }
+    }
+
+    @Override
+    public byte[] readAllBytes(StoredBlob blob) throws IOException {
+        try (FileChannel channel = openChecked(blob)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            byte[] content = new byte[mapped.remaining()];
+            mapped.get(content);
+            return content;
+        }
+    }
+
+    @Override
+    public void read(StoredBlob blob, long offset, long length, OutputStream out) throws IOException {
+        try (FileChannel channel = openChecked(blob)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = offset;
+            long end = Math.min(channel.size(), offset + length);
+            while (position < end) {
+                long transferred = channel.transferTo(position, end - position, target);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+            }
+            out.flush();
+        }
+    }
+
+    @Override
+    public StoredBlob put(String bucket, String name, String contentType, byte[] content,
+                          Map<String, String> metadata, WriteCondition condition, String cacheControl) {
+        try {
+            return write(bucket, name, contentType, new ByteArrayInputStream(content), metadata, condition,
+                    cacheControl);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write " + name, e);
+        }
+    }
+
+    @Override
+    public StoredBlob put(String bucket, String name, String contentType, InputStream content) throws IOException {
+        return write(bucket, name, contentType, content, Map.of(), WriteCondition.NONE, null);
+    }
+
+    private StoredBlob write(String bucket, String name, String contentType, InputStream content,
+                             Map<String, String> metadata, WriteCondition condition, String cacheControl)
+            throws IOException {
+        simulateRoundTrip();
+        Path file = objectFile(bucket, name);
+        Files.createDirectories(file.getParent());
+        Path tmp = Files.createTempFile(file.getParent(), ".upload-", ".tmp");
+        BlobDigests digests = new BlobDigests();
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            byte[] chunk = new byte[64 * 1024];
+            int read;
+            while ((read = content.read(chunk)) != -1) {
+                digests.update(chunk, 0, read);
+                out.write(chunk, 0, read);
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        Properties props = new Properties();
+        props.setProperty("contentType", Objects.requireNonNullElse(contentType, "application/octet-stream"));
+        props.setProperty("generation", String.valueOf(generations.incrementAndGet()));
+        props.setProperty("metageneration", "1");
+        props.setProperty("createTime", String.valueOf(now));
+        props.setProperty("updateTime", String.valueOf(now));
+        props.setProperty("crc32c", digests.crc32c());
+        props.setProperty("md5", digests.md5());
+        if (cacheControl != null) {
+            props.setProperty("cacheControl", cacheControl);
+        }
+        metadata.forEach((key, value) -> {
+            if (value != null) {
+                props.setProperty(METADATA_PREFIX + key, value);
+            }
+        });
+
+        // the content is staged; the precondition check and the swap happen under the commit lock
+        commitLock.lock();
+        try {
+            long currentGeneration = get(bucket, name).map(StoredBlob::generation).orElse(0L);
+            if (!condition.isSatisfiedBy(currentGeneration)) {
+                Files.deleteIfExists(tmp);
+                throw new PreconditionFailedException("Precondition failed for " + name
+                        + ": expected generation " + condition.generation() + ", found " + currentGeneration);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            writeMeta(bucket, name, props);
+            namesOf(bucket).add(name);
+        } finally {
+            commitLock.unlock();
+        }
+        return get(bucket, name).orElseThrow(() -> new IOException("Object vanished after write: " + name));
+    }
+
+    @Override
+    public StoredBlob copy(StoredBlob source, String bucket, String name, Map<String, String> metadata,
+                           WriteCondition condition) {
+        try (FileChannel channel = openChecked(source);
+             InputStream in = Channels.newInputStream(channel)) {
+            return write(bucket, name, source.contentType(), in, metadata, condition, source.cacheControl());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to copy " + source.name(), e);
+        }
+    }
+
+    @Override
+    public StoredBlob updateMetadata(StoredBlob blob, Map<String, String> metadata) {
+        Properties props = new Properties();
+        commitLock.lock();
+        try (Reader reader = Files.newBufferedReader(metaFile(blob.bucket(), blob.name()))) {
+            props.load(reader);
+            if (Long.parseLong(props.getProperty("generation", "0")) != blob.generation()
+                    || Long.parseLong(props.getProperty("metageneration", "1")) != blob.metageneration()) {
+                throw new PreconditionFailedException("Object " + blob.name() + " changed since it was read");
+            }
+            props.stringPropertyNames().stream()
+                    .filter(key -> key.startsWith(METADATA_PREFIX))
+                    .forEach(props::remove);
+            metadata.forEach((key, value) -> {
+                if (value != null) {
+                    props.setProperty(METADATA_PREFIX + key, value);
+                }
+            });
+            long metageneration = Long.parseLong(props.getProperty("metageneration", "1")) + 1;
+            props.setProperty("metageneration", String.valueOf(metageneration));
+            props.setProperty("updateTime", String.valueOf(System.currentTimeMillis()));
+            writeMeta(blob.bucket(), blob.name(), props);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to update metadata of " + blob.name(), e);
+        } finally {
+            commitLock.unlock();
+        }
+        return get(blob.bucket(), blob.name()).orElseThrow();
+    }
+
+    @Override
+    public String signUrl(String bucket, String name, Duration ttl) {
+        return urlSigner.sign(bucket, name, ttl);
+    }
+
+    private void simulateRoundTrip() {
+        if (!latency.isZero()) {
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private FileChannel openChecked(StoredBlob blob) throws IOException {
+        StoredBlob current = get(blob.bucket(), blob.name())
+                .orElseThrow(() -> new NoSuchFileException(blob.name()));
+        if (current.generation() != blob.generation()) {
+            throw new IOException("Generation " + blob.generation() + " of " + blob.name() + " no longer exists");
+        }
+        return FileChannel.open(objectFile(blob.bucket(), blob.name()), StandardOpenOption.READ);
+    }
+
+    private void writeMeta(String bucket, String name, Properties props) throws IOException {
+        Path meta = metaFile(bucket, name);
+        Files.createDirectories(meta.getParent());
+        Path tmp = Files.createTempFile(meta.getParent(), ".meta-", ".tmp");
+        try (Writer writer = Files.newBufferedWriter(tmp)) {
+            props.store(writer, null);
+        }
+        Files.move(tmp, meta, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path objectsDir(String bucket) {
+        return root.resolve(bucket).resolve("objects");
+    }
+
+    private Path objectFile(String bucket, String name) {
+        return within(objectsDir(bucket), name);
+    }
+
+    private Path metaFile(String bucket, String name) {
+        return within(root.resolve(bucket).resolve("meta"), name + ".properties");
+    }
+
+    private static Path within(Path dir, String name) {
+        Path base = dir.normalize();
+        Path resolved = base.resolve(name).normalize();
+        if (!resolved.startsWith(base)) {
+            throw new IllegalArgumentException("Invalid object name: " + name);
+        }
+        return resolved;
+    }
+}
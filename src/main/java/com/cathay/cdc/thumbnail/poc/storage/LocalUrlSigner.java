@@ -0,0 +1,82 @@
+package com.cathay.cdc.thumbnail.poc.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import jakarta.annotation.PostConstruct;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+
+/**
+ * Offline stand-in for GCS signed URLs: HMAC-SHA256 over bucket, name and expiry, served by
+ * {@code SignedBlobController} under {@code /blobs/**}. The key is random per process unless
+ * {@code blobstore.local.signing-key} is set, so URLs die with a restart like expired ones.
+ */
+@Slf4j
+@Component
+@ConditionalOnExpression("'${blobstore.type:gcs}' != 'gcs'")
+public class LocalUrlSigner {
+
+    public static final String PATH = "/blobs";
+
+    @Value("${blobstore.local.base-url:http://localhost:${server.port:8099}}")
+    private String baseUrl;
+
+    @Value("${blobstore.local.signing-key:}")
+    private String signingKey;
+
+    private SecretKeySpec key;
+
+    @PostConstruct
+    private void init() {
+        byte[] secret;
+        if (signingKey.isBlank()) {
+            secret = new byte[32];
+            new SecureRandom().nextBytes(secret);
+        } else {
+            secret = signingKey.getBytes(StandardCharsets.UTF_8);
+        }
+        key = new SecretKeySpec(secret, "HmacSHA256");
+        log.info("Local signed URLs served from {}{}", baseUrl, PATH);
+    }
+
+    public String sign(String bucket, String name, Duration ttl) {
+        long expires = Instant.now().plus(ttl).getEpochSecond();
+        return UriComponentsBuilder.fromUriString(baseUrl)
+                .path(PATH).pathSegment(bucket).path("/" + name)
+                .queryParam("expires", expires)
+                .queryParam("signature", signature(bucket, name, expires))
+                .encode()
+                .toUriString();
+    }
+
+    /** Whether {@code signature} was issued by {@link #sign} for this object and has not expired. */
+    public boolean verify(String bucket, String name, long expires, String signature) {
+        if (signature == null || Instant.now().getEpochSecond() > expires) {
+            return false;
+        }
+        return MessageDigest.isEqual(signature(bucket, name, expires).getBytes(StandardCharsets.US_ASCII),
+                signature.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private String signature(String bucket, String name, long expires) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            byte[] digest = mac.doFinal((bucket + "\n" + name + "\n" + expires).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.cathay.cdc.thumbnail.poc.storage;
+
+/**
+ * The object changed since it was read: a {@link WriteCondition} or the generation/metageneration
+ * guard of a metadata update did not hold (HTTP 412 on GCS).
+ */
+public class PreconditionFailedException extends RuntimeException {
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+
+    public PreconditionFailedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,41 @@
+package com.cathay.cdc.thumbnail.poc.storage;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Backend-neutral snapshot of one object generation.
+ *
+ * @param createTime epoch millis the generation was written
+ * @param updateTime epoch millis of the last metadata change
+ * @param crc32c     base64 big-endian CRC32C of the content, as GCS reports it
+ * @param md5        base64 MD5 of the content
+ * @param cacheControl Cache-Control served with the object by the backend, {@code null} for its default
+ */
+public record StoredBlob(String bucket,
+                         String name,
+                         String contentType,
+                         long size,
+                         long generation,
+                         long metageneration,
+                         Long createTime,
+                         Long updateTime,
+                         String crc32c,
+                         String md5,
+                         String cacheControl,
+                         Map<String, String> metadata) {
+
+    public StoredBlob {
+        metadata = metadata == null ? Map.of() : metadata.entrySet().stream()
+                .filter(e -> e.getKey() != null && e.getValue() != null)
+                .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, Map.Entry::getValue));
+    }
+
+    public boolean isImage() {
+        return contentType != null && contentType.startsWith("image/");
+    }
+
+    public String metadata(String key) {
+        return metadata.get(key);
+    }
+}
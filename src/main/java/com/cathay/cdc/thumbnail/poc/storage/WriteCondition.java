@@ -0,0 +1,30 @@
+package com.cathay.cdc.thumbnail.poc.storage;
+
+/**
+ * Precondition for a write, mirroring the GCS {@code ifGenerationMatch} parameter.
+ *
+ * @param generation {@code null} for an unconditional write, {@code 0} if the object must not
+ *                   exist yet, otherwise the generation the live object must have
+ */
+public record WriteCondition(Long generation) {
+
+    public static final WriteCondition NONE = new WriteCondition(null);
+
+    public static WriteCondition doesNotExist() {
+        return new WriteCondition(0L);
+    }
+
+    public static WriteCondition generationMatch(long generation) {
+        return new WriteCondition(generation);
+    }
+
+    /** {@link #generationMatch} for an existing object, {@link #doesNotExist} otherwise. */
+    public static WriteCondition replacing(StoredBlob current) {
+        return current == null ? doesNotExist() : generationMatch(current.generation());
+    }
+
+    /** Whether an object currently at {@code currentGeneration} (0 = absent) satisfies this condition. */
+    public boolean isSatisfiedBy(long currentGeneration) {
+        return generation == null || generation == currentGeneration;
+    }
+}
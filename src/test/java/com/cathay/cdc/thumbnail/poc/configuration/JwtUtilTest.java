@@ -0,0 +1,71 @@
+package com.cathay.cdc.thumbnail.poc.configuration;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtUtilTest {
+
+    private static final String SECRET = "test-secret-that-is-at-least-32-bytes-long";
+
+    private final JwtUtil jwtUtil = new JwtUtil(SECRET, 60_000, 100);
+
+    @Test
+    void verifiesAndCachesAValidToken() {
+        String token = jwtUtil.generateToken("alice", List.of("ROLE_USER"));
+
+        JwtPrincipal first = jwtUtil.verify(token).orElseThrow();
+        JwtPrincipal second = jwtUtil.verify(token).orElseThrow();
+
+        assertThat(first.subject()).isEqualTo("alice");
+        assertThat(first.roles()).containsExactly("ROLE_USER");
+        assertThat(second).isSameAs(first);
+        assertThat(jwtUtil.nativeCache().estimatedSize()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsTamperedAndForeignTokens() {
+        String token = jwtUtil.generateToken("alice", List.of("ROLE_USER"));
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+        String foreign = new JwtUtil(SECRET.replace('t', 'x'), 60_000, 100)
+                .generateToken("alice", List.of("ROLE_ADMIN"));
+
+        assertThat(jwtUtil.verify(tampered)).isEmpty();
+        assertThat(jwtUtil.verify(foreign)).isEmpty();
+        assertThat(jwtUtil.verify("not.a.jwt")).isEmpty();
+        assertThat(jwtUtil.verify("")).isEmpty();
+        assertThat(jwtUtil.verify(null)).isEmpty();
+        assertThat(jwtUtil.nativeCache().estimatedSize()).isZero();
+    }
+
+    @Test
+    void rejectsAnExpiredToken() {
+        JwtUtil expiring = new JwtUtil(SECRET, -1_000, 100);
+
+        assertThat(expiring.verify(expiring.generateToken("alice", List.of()))).isEmpty();
+    }
+
+    @Test
+    void cachedTokenStopsVerifyingOnceItExpires() throws Exception {
+        JwtUtil shortLived = new JwtUtil(SECRET, 1_000, 100);
+        String token = shortLived.generateToken("alice", List.of());
+        assertThat(shortLived.verify(token)).isPresent();
+
+        // exp has second resolution
+        Thread.sleep(2_100);
+
+        assertThat(shortLived.verify(token)).isEmpty();
+    }
+
+    @Test
+    void accessorsDelegateToVerify() {
+        String token = jwtUtil.generateToken("bob", List.of("ROLE_ADMIN", "ROLE_USER"));
+
+        assertThat(jwtUtil.validateToken(token)).isTrue();
+        assertThat(jwtUtil.extractUsername(token)).isEqualTo("bob");
+        assertThat(jwtUtil.extractRoles(token)).containsExactly("ROLE_ADMIN", "ROLE_USER");
+        assertThat(jwtUtil.extractRoles("garbage")).isEmpty();
+    }
+}
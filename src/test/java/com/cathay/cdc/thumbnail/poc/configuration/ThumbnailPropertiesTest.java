@@ -0,0 +1,66 @@
+package com.cathay.cdc.thumbnail.poc.configuration;
+
+import com.cathay.cdc.thumbnail.poc.configuration.ThumbnailProperties.FitMode;
+import com.cathay.cdc.thumbnail.poc.configuration.ThumbnailProperties.Rendition;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ThumbnailPropertiesTest {
+
+    @Test
+    void signatureIsStableForTheSameProfiles() {
+        assertThat(properties(r -> { }).renditionSignature())
+                .isEqualTo(properties(r -> { }).renditionSignature())
+                .startsWith("small,large@");
+    }
+
+    @Test
+    void signatureChangesWithEveryProfileSetting() {
+        String base = properties(r -> { }).renditionSignature();
+
+        List<Consumer<Rendition>> changes = List.of(
+                r -> r.setName("tiny"),
+                r -> r.setWidth(65),
+                r -> r.setHeight(65),
+                r -> r.setFit(FitMode.COVER),
+                r -> r.setFormat("png"),
+                r -> r.setQuality(0.9f),
+                r -> r.setPrefix("elsewhere"));
+
+        for (Consumer<Rendition> change : changes) {
+            assertThat(properties(change).renditionSignature()).isNotEqualTo(base);
+        }
+    }
+
+    @Test
+    void defaultProfileFollowsWidth() {
+        ThumbnailProperties properties = new ThumbnailProperties();
+        String at150 = properties.renditionSignature();
+        properties.setWidth(200);
+
+        assertThat(at150).startsWith(ThumbnailProperties.DEFAULT_RENDITION + "@");
+        assertThat(properties.renditionSignature()).isNotEqualTo(at150);
+    }
+
+    /** Two profiles; {@code change} is applied to the first. */
+    private static ThumbnailProperties properties(Consumer<Rendition> change) {
+        Rendition small = rendition("small", 64);
+        Rendition large = rendition("large", 400);
+        change.accept(small);
+        ThumbnailProperties properties = new ThumbnailProperties();
+        properties.setRenditions(List.of(small, large));
+        return properties;
+    }
+
+    private static Rendition rendition(String name, int size) {
+        Rendition rendition = new Rendition();
+        rendition.setName(name);
+        rendition.setWidth(size);
+        rendition.setHeight(size);
+        return rendition;
+    }
+}
@@ -0,0 +1,142 @@
+package com.cathay.cdc.thumbnail.poc.controller;
+
+import com.cathay.cdc.thumbnail.poc.service.FileIndexService;
+import com.cathay.cdc.thumbnail.poc.service.FileUrlService;
+import com.cathay.cdc.thumbnail.poc.service.GcpStorageService;
+import com.cathay.cdc.thumbnail.poc.storage.StoredBlob;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class FileControllerDownloadTest {
+
+    private static final byte[] CONTENT = "0123456789".getBytes(StandardCharsets.US_ASCII);
+    private static final String ETAG = "\"42\"";
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        GcpStorageService storage = mock(GcpStorageService.class);
+        StoredBlob blob = new StoredBlob("bucket", "a.txt", "text/plain", CONTENT.length, 42, 1,
+                1_700_000_000_000L, 1_700_000_000_000L, null, null, null, Map.of());
+        when(storage.getFile("bucket", "a.txt")).thenReturn(blob);
+        doAnswer(invocation -> {
+            int offset = invocation.<Long>getArgument(1).intValue();
+            int length = invocation.<Long>getArgument(2).intValue();
+            invocation.<OutputStream>getArgument(3).write(CONTENT, offset, length);
+            return null;
+        }).when(storage).streamFile(eq(blob), anyLong(), anyLong(), any(OutputStream.class));
+
+        FileController controller = new FileController(storage, mock(FileIndexService.class), mock(FileUrlService.class));
+        ReflectionTestUtils.setField(controller, "bucketName", "bucket");
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void servesTheWholeObjectWithoutRange() throws Exception {
+        MvcResult result = mockMvc.perform(download()).andExpect(request().asyncStarted()).andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().string(HttpHeaders.ETAG, ETAG))
+                .andExpect(content().bytes(CONTENT));
+    }
+
+    @Test
+    void servesASingleRange() throws Exception {
+        MvcResult result = mockMvc.perform(download().header(HttpHeaders.RANGE, "bytes=2-5"))
+                .andExpect(request().asyncStarted()).andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-5/10"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 4))
+                .andExpect(content().bytes(Arrays.copyOfRange(CONTENT, 2, 6)));
+    }
+
+    @Test
+    void servesASuffixRange() throws Exception {
+        MvcResult result = mockMvc.perform(download().header(HttpHeaders.RANGE, "bytes=-3"))
+                .andExpect(request().asyncStarted()).andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 7-9/10"))
+                .andExpect(content().bytes(Arrays.copyOfRange(CONTENT, 7, 10)));
+    }
+
+    @Test
+    void rangeBeyondTheEndIsNotSatisfiable() throws Exception {
+        mockMvc.perform(download().header(HttpHeaders.RANGE, "bytes=10-20"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */10"));
+    }
+
+    @Test
+    void staleIfRangeGetsTheWholeObject() throws Exception {
+        MvcResult result = mockMvc.perform(download()
+                        .header(HttpHeaders.RANGE, "bytes=2-5")
+                        .header(HttpHeaders.IF_RANGE, "\"41\""))
+                .andExpect(request().asyncStarted()).andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(CONTENT));
+    }
+
+    @Test
+    void matchingIfRangeGetsTheRange() throws Exception {
+        MvcResult result = mockMvc.perform(download()
+                        .header(HttpHeaders.RANGE, "bytes=2-5")
+                        .header(HttpHeaders.IF_RANGE, ETAG))
+                .andExpect(request().asyncStarted()).andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isPartialContent());
+    }
+
+    @Test
+    void multipleRangesGetTheWholeObject() throws Exception {
+        MvcResult result = mockMvc.perform(download().header(HttpHeaders.RANGE, "bytes=0-1,4-5"))
+                .andExpect(request().asyncStarted()).andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(CONTENT));
+    }
+
+    @Test
+    void matchingEtagIsNotModified() throws Exception {
+        mockMvc.perform(download().header(HttpHeaders.IF_NONE_MATCH, ETAG))
+                .andExpect(status().isNotModified());
+    }
+
+    private static MockHttpServletRequestBuilder download() {
+        return get("/api/files/download/a.txt").param("redirect", "false");
+    }
+}
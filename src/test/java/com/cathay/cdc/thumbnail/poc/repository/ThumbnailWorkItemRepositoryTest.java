@@ -0,0 +1,229 @@
+package com.cathay.cdc.thumbnail.poc.repository;
+
+import com.cathay.cdc.thumbnail.poc.PostgresTest;
+import com.cathay.cdc.thumbnail.poc.entity.ThumbnailWorkItem;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Claims run in their own transactions here, as they do between instances. */
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ThumbnailWorkItemRepositoryTest extends PostgresTest {
+
+    @Autowired
+    private ThumbnailWorkItemRepository workItemRepository;
+
+    @Autowired
+    private JobLockRepository jobLockRepository;
+
+    @BeforeEach
+    void clean() {
+        workItemRepository.deleteAll();
+        jobLockRepository.deleteAll();
+    }
+
+    @Test
+    void enqueueIsIdempotentPerGeneration() {
+        assertThat(workItemRepository.enqueue("bucket", "a.jpg", 1)).isEqualTo(1);
+        assertThat(workItemRepository.enqueue("bucket", "a.jpg", 1)).isZero();
+        assertThat(workItemRepository.enqueue("bucket", "a.jpg", 2)).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentClaimsNeverHandOutTheSameItem() throws Exception {
+        for (int i = 0; i < 60; i++) {
+            workItemRepository.enqueue("bucket", i + ".jpg", 1);
+        }
+
+        List<Long> claimed = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Callable<Void>> instances = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                String owner = "instance-" + i;
+                instances.add(() -> {
+                    List<ThumbnailWorkItem> batch;
+                    while (!(batch = workItemRepository.claim(owner, 300, 5, 5)).isEmpty()) {
+                        batch.forEach(item -> claimed.add(item.getId()));
+                    }
+                    return null;
+                });
+            }
+            for (Future<Void> done : pool.invokeAll(instances)) {
+                done.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        assertThat(claimed).hasSize(60).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void expiredLeaseIsClaimedAgain() throws Exception {
+        workItemRepository.enqueue("bucket", "a.jpg", 1);
+        ThumbnailWorkItem first = workItemRepository.claim("dead", 0, 5, 10).get(0);
+        Thread.sleep(10);
+
+        List<ThumbnailWorkItem> again = workItemRepository.claim("alive", 300, 5, 10);
+
+        assertThat(again).singleElement().satisfies(item -> {
+            assertThat(item.getId()).isEqualTo(first.getId());
+            assertThat(item.getLeasedBy()).isEqualTo("alive");
+            assertThat(item.getAttempts()).isEqualTo(2);
+        });
+    }
+
+    @Test
+    void renewedLeaseIsNotClaimedByOthers() throws Exception {
+        workItemRepository.enqueue("bucket", "a.jpg", 1);
+        ThumbnailWorkItem item = workItemRepository.claim("owner", 0, 5, 10).get(0);
+
+        assertThat(workItemRepository.renewLeases(List.of(item.getId()), "owner", 300)).isEqualTo(1);
+        assertThat(workItemRepository.renewLeases(List.of(item.getId()), "someone-else", 300)).isZero();
+        Thread.sleep(10);
+
+        assertThat(workItemRepository.claim("other", 300, 5, 10)).isEmpty();
+    }
+
+    @Test
+    void completedItemIsNotClaimedAgain() {
+        workItemRepository.enqueue("bucket", "a.jpg", 1);
+        ThumbnailWorkItem item = workItemRepository.claim("owner", 300, 5, 10).get(0);
+
+        assertThat(workItemRepository.complete(item.getId(), "someone-else")).isZero();
+        assertThat(workItemRepository.complete(item.getId(), "owner")).isEqualTo(1);
+        assertThat(workItemRepository.enqueue("bucket", "a.jpg", 1)).isZero();
+        assertThat(workItemRepository.claim("owner", 0, 5, 10)).isEmpty();
+    }
+
+    @Test
+    void failedItemWaitsOutItsBackoff() {
+        workItemRepository.enqueue("bucket", "a.jpg", 1);
+        ThumbnailWorkItem item = workItemRepository.claim("owner", 300, 5, 10).get(0);
+
+        assertThat(workItemRepository.fail(item.getId(), "someone-else", "boom", 300, 5)).isZero();
+        assertThat(workItemRepository.fail(item.getId(), "owner", "IOException: boom", 300, 5)).isEqualTo(1);
+
+        ThumbnailWorkItem failed = workItemRepository.findById(item.getId()).orElseThrow();
+        assertThat(failed.getState()).isEqualTo(ThumbnailWorkItem.PENDING);
+        assertThat(failed.getLastError()).isEqualTo("IOException: boom");
+        assertThat(failed.getLeasedBy()).isNull();
+        assertThat(failed.getNextAttemptAt()).isAfter(OffsetDateTime.now().plusSeconds(200));
+        assertThat(workItemRepository.claim("owner", 300, 5, 10)).isEmpty();
+        assertThat(workItemRepository.findByStateAndLastErrorIsNotNullOrderByUpdatedAtDesc(
+                ThumbnailWorkItem.PENDING, PageRequest.of(0, 10)))
+                .extracting(ThumbnailWorkItem::getId).containsExactly(item.getId());
+    }
+
+    @Test
+    void lastFailedAttemptQuarantinesUntilRequeued() {
+        workItemRepository.enqueue("bucket", "a.jpg", 1);
+        ThumbnailWorkItem first = workItemRepository.claim("owner", 300, 2, 10).get(0);
+        workItemRepository.fail(first.getId(), "owner", "first", 0, 2);
+        ThumbnailWorkItem second = workItemRepository.claim("owner", 300, 2, 10).get(0);
+        assertThat(second.getAttempts()).isEqualTo(2);
+
+        assertThat(workItemRepository.fail(second.getId(), "owner", "second", 0, 2)).isEqualTo(1);
+
+        assertThat(workItemRepository.findById(first.getId()).orElseThrow().getState())
+                .isEqualTo(ThumbnailWorkItem.QUARANTINED);
+        assertThat(workItemRepository.claim("owner", 300, 2, 10)).isEmpty();
+        assertThat(workItemRepository.countByState(ThumbnailWorkItem.QUARANTINED)).isEqualTo(1);
+
+        assertThat(workItemRepository.requeueQuarantined(first.getId() + 1)).isZero();
+        assertThat(workItemRepository.requeueQuarantined(first.getId())).isEqualTo(1);
+
+        assertThat(workItemRepository.claim("owner", 300, 2, 10)).singleElement().satisfies(item -> {
+            assertThat(item.getId()).isEqualTo(first.getId());
+            assertThat(item.getAttempts()).isEqualTo(1);
+            assertThat(item.getState()).isEqualTo(ThumbnailWorkItem.PENDING);
+        });
+    }
+
+    @Test
+    void deferringMoreOftenThanMaxAttemptsNeverQuarantines() {
+        workItemRepository.enqueue("bucket", "large.jpg", 1);
+
+        for (int i = 0; i < 8; i++) {
+            ThumbnailWorkItem item = workItemRepository.claim("owner", 300, 5, 10).get(0);
+            assertThat(item.getAttempts()).isEqualTo(1);
+            assertThat(workItemRepository.defer(item.getId(), "owner", 0)).isEqualTo(1);
+        }
+        assertThat(workItemRepository.quarantineAbandoned(5)).isZero();
+
+        ThumbnailWorkItem deferred = workItemRepository.claim("owner", 300, 5, 10).get(0);
+        assertThat(workItemRepository.defer(deferred.getId(), "someone-else", 0)).isZero();
+        assertThat(workItemRepository.defer(deferred.getId(), "owner", 300)).isEqualTo(1);
+
+        ThumbnailWorkItem stored = workItemRepository.findById(deferred.getId()).orElseThrow();
+        assertThat(stored.getState()).isEqualTo(ThumbnailWorkItem.PENDING);
+        assertThat(stored.getAttempts()).isZero();
+        assertThat(stored.getLeasedBy()).isNull();
+        assertThat(stored.getNextAttemptAt()).isAfter(OffsetDateTime.now().plusSeconds(200));
+        assertThat(workItemRepository.claim("owner", 300, 5, 10)).isEmpty();
+    }
+
+    @Test
+    void abandonedLastAttemptIsQuarantined() throws Exception {
+        workItemRepository.enqueue("bucket", "retry.jpg", 1);
+        workItemRepository.enqueue("bucket", "live.jpg", 1);
+        workItemRepository.enqueue("bucket", "last.jpg", 1);
+        ThumbnailWorkItem retry = workItemRepository.claim("owner", 300, 1, 1).get(0);
+        workItemRepository.fail(retry.getId(), "owner", "boom", 300, 5);
+        ThumbnailWorkItem live = workItemRepository.claim("alive", 300, 1, 1).get(0);
+        ThumbnailWorkItem last = workItemRepository.claim("dead", 0, 1, 1).get(0);
+        Thread.sleep(10);
+
+        assertThat(workItemRepository.quarantineAbandoned(1)).isEqualTo(1);
+
+        ThumbnailWorkItem quarantined = workItemRepository.findById(last.getId()).orElseThrow();
+        assertThat(quarantined.getState()).isEqualTo(ThumbnailWorkItem.QUARANTINED);
+        assertThat(quarantined.getLastError()).isEqualTo("lease expired without completion");
+        assertThat(workItemRepository.findById(live.getId()).orElseThrow().getState())
+                .isEqualTo(ThumbnailWorkItem.PENDING);
+        assertThat(workItemRepository.countByState(ThumbnailWorkItem.PENDING)).isEqualTo(2);
+    }
+
+    @Test
+    void requeueWithoutIdReleasesEveryQuarantinedItem() {
+        for (String name : List.of("a.jpg", "b.jpg")) {
+            workItemRepository.enqueue("bucket", name, 1);
+            ThumbnailWorkItem item = workItemRepository.claim("owner", 300, 1, 1).get(0);
+            workItemRepository.fail(item.getId(), "owner", "boom", 0, 1);
+        }
+
+        assertThat(workItemRepository.requeueQuarantined(null)).isEqualTo(2);
+
+        assertThat(workItemRepository.countByState(ThumbnailWorkItem.QUARANTINED)).isZero();
+        assertThat(workItemRepository.claim("owner", 300, 1, 10)).hasSize(2);
+    }
+
+    @Test
+    void lockIsHeldUntilReleasedAndRenewedOnlyByItsHolder() throws Exception {
+        assertThat(jobLockRepository.tryAcquire("job", "a", 900)).isEqualTo(1);
+        assertThat(jobLockRepository.tryAcquire("job", "b", 900)).isZero();
+        assertThat(jobLockRepository.renew("job", "a", 900)).isEqualTo(1);
+        assertThat(jobLockRepository.renew("job", "b", 900)).isZero();
+
+        jobLockRepository.release("job", "a");
+        Thread.sleep(10);
+
+        assertThat(jobLockRepository.tryAcquire("job", "b", 900)).isEqualTo(1);
+        assertThat(jobLockRepository.renew("job", "a", 900)).isZero();
+    }
+}
@@ -0,0 +1,53 @@
+package com.cathay.cdc.thumbnail.poc.service;
+
+import com.cathay.cdc.thumbnail.poc.storage.StoredBlob;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CheckpointBlobChangeSourceTest {
+
+    @Test
+    void emitsOnlyObjectsAfterTheCommittedMark() {
+        CheckpointBlobChangeSource.Poll poll = new CheckpointBlobChangeSource.Poll(100, 5, 1_000);
+
+        assertThat(poll.accept(blob("old", 90, 9))).isFalse();
+        assertThat(poll.accept(blob("same-time-older", 100, 5))).isFalse();
+        assertThat(poll.accept(blob("same-time-newer", 100, 6))).isTrue();
+        assertThat(poll.accept(blob("new", 200, 1))).isTrue();
+        assertThat(poll.seenCreateTime()).isEqualTo(200);
+        assertThat(poll.seenGeneration()).isEqualTo(1);
+    }
+
+    @Test
+    void markStaysBelowThePollHorizon() {
+        CheckpointBlobChangeSource.Poll poll = new CheckpointBlobChangeSource.Poll(100, 5, 1_000);
+
+        // created while the listing ran: emitted now, and again next poll until it is below the horizon
+        assertThat(poll.accept(blob("z-late", 1_500, 1))).isTrue();
+        assertThat(poll.accept(blob("a-early", 500, 1))).isTrue();
+
+        assertThat(poll.seenCreateTime()).isEqualTo(500);
+        assertThat(poll.advanced()).isTrue();
+    }
+
+    @Test
+    void filterSkipsRejectedObjectsLazily() {
+        CheckpointBlobChangeSource.Poll poll = new CheckpointBlobChangeSource.Poll(100, 0, 1_000);
+        List<StoredBlob> listing = List.of(blob("a", 50, 1), blob("b", 150, 1), blob("c", 60, 1), blob("d", 160, 1));
+
+        List<String> names = new ArrayList<>();
+        poll.filter(listing.iterator()).forEachRemaining(blob -> names.add(blob.name()));
+
+        assertThat(names).containsExactly("b", "d");
+    }
+
+    private static StoredBlob blob(String name, long createTime, long generation) {
+        return new StoredBlob("bucket", name, "image/jpeg", 10, generation, 1, createTime, createTime,
+                null, null, null, Map.of());
+    }
+}
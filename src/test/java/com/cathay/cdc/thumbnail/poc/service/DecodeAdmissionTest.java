@@ -0,0 +1,81 @@
+package com.cathay.cdc.thumbnail.poc.service;
+
+import com.cathay.cdc.thumbnail.poc.exception.ImageTooLargeException;
+import com.cathay.cdc.thumbnail.poc.exception.ServiceBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DecodeAdmissionTest {
+
+    private static final long MB = 1024 * 1024;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void reservesUntilThePermitIsClosed() throws Exception {
+        DecodeAdmission admission = new DecodeAdmission(meterRegistry, 10 * MB, Duration.ofSeconds(1));
+
+        DecodeAdmission.Permit permit = admission.admit("a.jpg", 4 * MB);
+        assertThat(admission.reservedBytes()).isEqualTo(4 * MB);
+
+        permit.close();
+        permit.close();
+        assertThat(admission.reservedBytes()).isZero();
+    }
+
+    @Test
+    void waitsForRunningDecodesToFinish() throws Exception {
+        DecodeAdmission admission = new DecodeAdmission(meterRegistry, 10 * MB, Duration.ofSeconds(10));
+        DecodeAdmission.Permit running = admission.admit("a.jpg", 8 * MB);
+
+        CompletableFuture<DecodeAdmission.Permit> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return admission.admit("b.jpg", 8 * MB);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(100);
+        assertThat(waiting).isNotDone();
+
+        running.close();
+
+        try (DecodeAdmission.Permit admitted = waiting.get(5, TimeUnit.SECONDS)) {
+            assertThat(admitted).isNotNull();
+            assertThat(admission.reservedBytes()).isEqualTo(8 * MB);
+        }
+    }
+
+    @Test
+    void givesUpAfterTheAdmissionTimeout() throws Exception {
+        DecodeAdmission admission = new DecodeAdmission(meterRegistry, 10 * MB, Duration.ofMillis(50));
+
+        try (DecodeAdmission.Permit running = admission.admit("a.jpg", 8 * MB)) {
+            assertThatThrownBy(() -> admission.admit("b.jpg", 8 * MB))
+                    .isInstanceOf(ServiceBusyException.class)
+                    .hasMessageContaining("b.jpg");
+        }
+        assertThat(admission.reservedBytes()).isZero();
+        assertThat(meterRegistry.get("thumbnail.decode.admission.rejected").tag("reason", "timeout").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void rejectsDecodesLargerThanTheWholeBudget() {
+        DecodeAdmission admission = new DecodeAdmission(meterRegistry, 10 * MB, Duration.ofSeconds(10));
+
+        assertThatThrownBy(() -> admission.admit("huge.png", 11 * MB))
+                .isInstanceOf(ImageTooLargeException.class)
+                .hasMessageContaining("huge.png");
+        assertThat(admission.reservedBytes()).isZero();
+        assertThat(meterRegistry.get("thumbnail.decode.admission.rejected").tag("reason", "too_large").counter().count())
+                .isEqualTo(1);
+    }
+}
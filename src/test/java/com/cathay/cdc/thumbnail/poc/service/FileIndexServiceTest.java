@@ -0,0 +1,100 @@
+package com.cathay.cdc.thumbnail.poc.service;
+
+import com.cathay.cdc.thumbnail.poc.PostgresTest;
+import com.cathay.cdc.thumbnail.poc.dto.FileMetadata;
+import com.cathay.cdc.thumbnail.poc.dto.FilePage;
+import com.cathay.cdc.thumbnail.poc.dto.FileQuery;
+import com.cathay.cdc.thumbnail.poc.repository.FileIndexRepository;
+import com.cathay.cdc.thumbnail.poc.storage.BlobStore;
+import com.cathay.cdc.thumbnail.poc.storage.StoredBlob;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class FileIndexServiceTest extends PostgresTest {
+
+    private static final long T0 = 1_700_000_000_000L;
+
+    @Autowired
+    private FileIndexRepository fileIndexRepository;
+
+    private FileIndexService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new FileIndexService(fileIndexRepository, mock(BlobStore.class), mock(ApplicationEventPublisher.class));
+        ReflectionTestUtils.setField(service, "maxLimit", 1000);
+    }
+
+    @Test
+    void pagesNewestFirstWithoutGapsOrRepeats() {
+        // c and d share a create time; the id breaks the tie
+        index("a.jpg", T0, "image/jpeg");
+        index("b.jpg", T0 + 1000, "image/jpeg");
+        index("c.jpg", T0 + 2000, "image/jpeg");
+        index("d.jpg", T0 + 2000, "image/jpeg");
+        index("e.jpg", T0 + 3000, "image/jpeg");
+
+        List<String> names = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            FilePage page = service.list("bucket", new FileQuery(null, null, null, cursor, 2));
+            page.items().stream().map(FileMetadata::getName).forEach(names::add);
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertThat(names).containsExactly("e.jpg", "d.jpg", "c.jpg", "b.jpg", "a.jpg");
+        assertThat(pages).isEqualTo(3);
+    }
+
+    @Test
+    void newerRowsDoNotShiftLaterPages() {
+        for (int i = 0; i < 4; i++) {
+            index(i + ".jpg", T0 + i * 1000L, "image/jpeg");
+        }
+        FilePage first = service.list("bucket", new FileQuery(null, null, null, null, 2));
+
+        index("newest.jpg", T0 + 10_000, "image/jpeg");
+        FilePage second = service.list("bucket", new FileQuery(null, null, null, first.nextCursor(), 2));
+
+        assertThat(second.items()).extracting(FileMetadata::getName).containsExactly("1.jpg", "0.jpg");
+        assertThat(second.nextCursor()).isNull();
+    }
+
+    @Test
+    void filtersByPrefixAndContentTypeFamily() {
+        index("photos/a.jpg", T0, "image/jpeg");
+        index("photos/b.png", T0 + 1000, "image/png");
+        index("photos/c.txt", T0 + 2000, "text/plain");
+        index("docs/d.jpg", T0 + 3000, "image/jpeg");
+
+        FilePage page = service.list("bucket", new FileQuery("photos/", null, "image/*", null, 10));
+
+        assertThat(page.items()).extracting(FileMetadata::getName).containsExactly("photos/b.png", "photos/a.jpg");
+    }
+
+    @Test
+    void rejectsForeignCursorsAndLimits() {
+        assertThatThrownBy(() -> service.list("bucket", new FileQuery(null, null, null, "not-a-cursor", 10)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.list("bucket", new FileQuery(null, null, null, null, 0)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void index(String name, long createTime, String contentType) {
+        service.index(new StoredBlob("bucket", name, contentType, 10, 1, 1, createTime, createTime,
+                null, null, null, Map.of()));
+    }
+}
@@ -0,0 +1,127 @@
+package com.cathay.cdc.thumbnail.poc.service;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.ByteArrayInputStream;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ImageEncoderTest {
+
+    private final ImageEncoder encoder = new ImageEncoder();
+
+    @Test
+    void photosBecomeJpeg() {
+        assertThat(encoder.chooseFormat(photo(BufferedImage.TYPE_INT_RGB), null, "jpeg", ImageEncoder.UNIVERSAL))
+                .isEqualTo("jpg");
+    }
+
+    @Test
+    void transparentPhotosBecomePng() {
+        BufferedImage image = photo(BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, 0x00FFFFFF);
+
+        assertThat(encoder.analyze(image).transparent()).isTrue();
+        assertThat(encoder.chooseFormat(image, ImageEncoder.AUTO, "png", ImageEncoder.UNIVERSAL)).isEqualTo("png");
+    }
+
+    @Test
+    void graphicsBecomePalettePng() throws Exception {
+        BufferedImage image = graphic();
+
+        ImageEncoder.Analysis analysis = encoder.analyze(image);
+        assertThat(analysis.graphic()).isTrue();
+        assertThat(analysis.palette()).hasSize(3);
+        assertThat(encoder.chooseFormat(image, null, "jpeg", ImageEncoder.UNIVERSAL)).isEqualTo("png");
+
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(encoder.encode(image, "png", 0.8f)));
+        assertThat(decoded.getColorModel()).isInstanceOf(IndexColorModel.class);
+        assertSamePixels(decoded, image);
+    }
+
+    @Test
+    void explicitFormatsAreKeptWhenWritable() {
+        BufferedImage image = graphic();
+
+        assertThat(encoder.chooseFormat(image, "PNG", "jpeg", ImageEncoder.UNIVERSAL)).isEqualTo("png");
+        assertThat(encoder.chooseFormat(image, ImageEncoder.SOURCE, "jpeg", ImageEncoder.UNIVERSAL)).isEqualTo("jpeg");
+        assertThat(encoder.chooseFormat(image, "no-such-format", "png", ImageEncoder.UNIVERSAL)).isEqualTo("jpg");
+    }
+
+    @Test
+    void toIndexedKeepsEveryPixel() {
+        BufferedImage image = graphic();
+        image.setRGB(1, 1, 0x80FF0000);
+
+        BufferedImage indexed = ImageEncoder.toIndexed(image, encoder.analyze(image).palette());
+
+        assertThat(indexed.getType()).isEqualTo(BufferedImage.TYPE_BYTE_INDEXED);
+        assertSamePixels(indexed, image);
+    }
+
+    @Test
+    void flattenAlphaComposesOverWhite() {
+        BufferedImage image = new BufferedImage(2, 1, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, 0x00000000);
+        image.setRGB(1, 0, 0xFF0000FF);
+
+        BufferedImage flat = ImageEncoder.flattenAlpha(image);
+
+        assertThat(flat.getColorModel().hasAlpha()).isFalse();
+        assertThat(flat.getRGB(0, 0)).isEqualTo(0xFFFFFFFF);
+        assertThat(flat.getRGB(1, 0)).isEqualTo(0xFF0000FF);
+    }
+
+    @Test
+    void webpIsOnlyAcceptedWithAPositiveQuality() {
+        assertThat(encoder.acceptedFormats(null)).isEqualTo(ImageEncoder.UNIVERSAL);
+        assertThat(encoder.acceptedFormats("image/webp;q=0, */*")).isEqualTo(ImageEncoder.UNIVERSAL);
+        assertThat(encoder.acceptedFormats("not a media type;;")).isEqualTo(ImageEncoder.UNIVERSAL);
+        assertThat(encoder.acceptedFormats("image/webp;q=0.8, */*").contains("webp"))
+                .isEqualTo(encoder.canWrite("webp"));
+    }
+
+    @Test
+    void unknownFormatIsABadArgument() {
+        assertThatThrownBy(() -> encoder.encode(graphic(), "no-such-format", 0.8f))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("no-such-format");
+    }
+
+    /** Smooth gradients: far more than 256 colors. */
+    private static BufferedImage photo(int type) {
+        BufferedImage image = new BufferedImage(64, 64, type);
+        for (int y = 0; y < 64; y++) {
+            for (int x = 0; x < 64; x++) {
+                image.setRGB(x, y, 0xFF000000 | (x * 4) << 16 | (y * 4) << 8 | (x * y) % 256);
+            }
+        }
+        return image;
+    }
+
+    /** Three flat colors. */
+    private static BufferedImage graphic() {
+        BufferedImage image = new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < 16; y++) {
+            for (int x = 0; x < 16; x++) {
+                image.setRGB(x, y, x < 8 ? 0xFFFFFFFF : y < 8 ? 0xFF336699 : 0xFFCC0000);
+            }
+        }
+        return image;
+    }
+
+    private static void assertSamePixels(BufferedImage actual, BufferedImage expected) {
+        assertThat(actual.getWidth()).isEqualTo(expected.getWidth());
+        assertThat(actual.getHeight()).isEqualTo(expected.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertThat(actual.getRGB(x, y)).as("pixel %d,%d", x, y).isEqualTo(expected.getRGB(x, y));
+            }
+        }
+    }
+}
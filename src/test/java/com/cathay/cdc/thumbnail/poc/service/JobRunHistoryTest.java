@@ -0,0 +1,68 @@
+package com.cathay.cdc.thumbnail.poc.service;
+
+import com.cathay.cdc.thumbnail.poc.dto.FileMetadata;
+import com.cathay.cdc.thumbnail.poc.dto.JobRunSummary;
+import com.cathay.cdc.thumbnail.poc.entity.ThumbnailJobRun;
+import com.cathay.cdc.thumbnail.poc.repository.ThumbnailJobRunRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class JobRunHistoryTest {
+
+    private final ThumbnailJobRunRepository repository = mock(ThumbnailJobRunRepository.class);
+    private final JobRunHistory history = new JobRunHistory(repository);
+    private final AtomicLong ids = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(history, "historySize", 3);
+        ReflectionTestUtils.setField(history, "maxOutputsPerRun", 10);
+        ReflectionTestUtils.setField(history, "retain", 100);
+        when(repository.save(any())).thenAnswer(invocation -> {
+            ThumbnailJobRun run = invocation.getArgument(0);
+            run.setId(ids.incrementAndGet());
+            return run;
+        });
+    }
+
+    @Test
+    void idleRunsAreNeitherKeptNorPersisted() {
+        JobRunSummary summary = history.finish(history.start("incremental"), result(0, 0, 0));
+
+        assertThat(summary.getId()).isNull();
+        assertThat(history.latest(10)).isEmpty();
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    void runsThatFoundWorkOutliveAnyNumberOfIdleOnes() {
+        JobRunHistory.Run productive = history.start("incremental");
+        productive.addOutputs(List.of(FileMetadata.builder().name("thumbnails/a.jpg").build()));
+        history.finish(productive, result(1, 1, 0));
+        history.finish(history.start("incremental"), result(2, 0, 2));
+
+        for (int i = 0; i < 10; i++) {
+            history.finish(history.start("incremental"), result(0, 0, 0));
+        }
+
+        assertThat(history.latest(10)).extracting(JobRunSummary::getListed).containsExactly(2L, 1L);
+        assertThat(history.latest(10).get(1).getOutputs())
+                .extracting(FileMetadata::getName).containsExactly("thumbnails/a.jpg");
+    }
+
+    private static ThumbnailPipeline.Result result(long listed, long completed, long failed) {
+        return new ThumbnailPipeline.Result(listed, completed, 0, failed, 5, Map.of());
+    }
+}
@@ -0,0 +1,80 @@
+package com.cathay.cdc.thumbnail.poc.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LoginRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+
+    /** Two attempts at once, one token back per second. */
+    private final LoginRateLimiter.TokenBucket bucket =
+            new LoginRateLimiter.TokenBucket(new LoginRateLimiter.Limit(2, Duration.ofSeconds(2)), now::get);
+
+    @Test
+    void startsFullAndReportsTheWaitForTheNextToken() {
+        assertThat(bucket.tryAcquire()).isEmpty();
+        assertThat(bucket.tryAcquire()).isEmpty();
+
+        Optional<Duration> wait = bucket.tryAcquire();
+
+        assertThat(wait).isPresent();
+        assertThat(wait.get().toMillis()).isEqualTo(1000);
+    }
+
+    @Test
+    void refillsInProportionToElapsedTime() {
+        bucket.tryAcquire();
+        bucket.tryAcquire();
+
+        advance(Duration.ofMillis(250));
+        assertThat(bucket.tryAcquire().orElseThrow().toMillis()).isEqualTo(750);
+
+        advance(Duration.ofSeconds(1));
+        assertThat(bucket.tryAcquire()).isEmpty();
+        assertThat(bucket.tryAcquire()).isPresent();
+    }
+
+    @Test
+    void refillStopsAtCapacity() {
+        advance(Duration.ofHours(1));
+
+        assertThat(bucket.tryAcquire()).isEmpty();
+        assertThat(bucket.tryAcquire()).isEmpty();
+        assertThat(bucket.tryAcquire()).isPresent();
+    }
+
+    @Test
+    void rejectedAttemptsDoNotConsumeTokens() {
+        bucket.tryAcquire();
+        bucket.tryAcquire();
+        for (int i = 0; i < 10; i++) {
+            bucket.tryAcquire();
+        }
+
+        advance(Duration.ofMillis(1100));
+
+        assertThat(bucket.tryAcquire()).isEmpty();
+    }
+
+    @Test
+    void limitsEachUsernameAndEachAddress() {
+        LoginRateLimiter limiter = new LoginRateLimiter(2, Duration.ofHours(1), 2, Duration.ofHours(1), 100);
+
+        assertThat(limiter.tryAcquire("alice", "10.0.0.1")).isEmpty();
+        assertThat(limiter.tryAcquire(" Alice ", "10.0.0.2")).isEmpty();
+        assertThat(limiter.tryAcquire("ALICE", "10.0.0.3")).isPresent();
+
+        assertThat(limiter.tryAcquire("bob", "10.0.0.1")).isEmpty();
+        assertThat(limiter.tryAcquire("carol", "10.0.0.1")).isPresent();
+    }
+
+    private void advance(Duration duration) {
+        now.addAndGet(duration.toNanos());
+    }
+}
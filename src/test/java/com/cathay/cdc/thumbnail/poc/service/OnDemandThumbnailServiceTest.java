@@ -0,0 +1,61 @@
+package com.cathay.cdc.thumbnail.poc.service;
+
+import com.cathay.cdc.thumbnail.poc.configuration.ThumbnailProperties;
+import com.cathay.cdc.thumbnail.poc.exception.ImageTooLargeException;
+import com.cathay.cdc.thumbnail.poc.storage.BlobStore;
+import com.cathay.cdc.thumbnail.poc.storage.StoredBlob;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OnDemandThumbnailServiceTest {
+
+    private final BlobStore blobStore = mock(BlobStore.class);
+    private final DecodeAdmission decodeAdmission = mock(DecodeAdmission.class);
+    private final OnDemandThumbnailService service = new OnDemandThumbnailService(
+            mock(ThumbnailRenderer.class), mock(ImageDecoder.class), decodeAdmission, mock(ImageEncoder.class),
+            new ThumbnailProperties(), mock(DiskImageCache.class), blobStore);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "bucketName", "bucket");
+        ReflectionTestUtils.setField(service, "maxDimension", 2048);
+        ReflectionTestUtils.setField(service, "maxSourceBytes", 1000L);
+    }
+
+    @Test
+    void refusesNonImagesWithoutReadingThem() throws Exception {
+        when(blobStore.get("bucket", "movie.mp4")).thenReturn(Optional.of(blob("movie.mp4", "video/mp4", 500)));
+
+        assertThatThrownBy(() -> service.getThumbnail("movie.mp4", 100, 0, null, null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Not an image");
+        verify(blobStore, never()).readAllBytes(any());
+    }
+
+    @Test
+    void refusesOriginalsAboveTheSourceLimitWithoutReadingThem() throws Exception {
+        when(blobStore.get("bucket", "huge.png")).thenReturn(Optional.of(blob("huge.png", "image/png", 1001)));
+
+        assertThatThrownBy(() -> service.getThumbnail("huge.png", 100, 0, null, null))
+                .isInstanceOf(ImageTooLargeException.class)
+                .hasMessageContaining("huge.png");
+        verify(blobStore, never()).readAllBytes(any());
+        verify(decodeAdmission, never()).admit(any(), anyLong());
+    }
+
+    private static StoredBlob blob(String name, String contentType, long size) {
+        return new StoredBlob("bucket", name, contentType, size, 1, 1, null, null, null, null, null, Map.of());
+    }
+}
@@ -0,0 +1,119 @@
+package com.cathay.cdc.thumbnail.poc.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class ThumbnailPipelineTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ThumbnailPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        pipeline = new ThumbnailPipeline(meterRegistry, ObservationRegistry.NOOP);
+        ReflectionTestUtils.setField(pipeline, "downloadWorkers", 2);
+        ReflectionTestUtils.setField(pipeline, "resizeWorkers", 2);
+        ReflectionTestUtils.setField(pipeline, "uploadWorkers", 2);
+        ReflectionTestUtils.setField(pipeline, "queueCapacity", 2);
+        ReflectionTestUtils.invokeMethod(pipeline, "init");
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(pipeline, "shutdown");
+    }
+
+    @Test
+    void runsEveryItemThroughAllStages() {
+        ThumbnailPipeline.Result result = pipeline.run(items(50), i -> i, i -> i * 2, i -> i);
+
+        assertThat(result.listed()).isEqualTo(50);
+        assertThat(result.completed()).isEqualTo(50);
+        assertThat(result.failed()).isZero();
+    }
+
+    @Test
+    void errorInAStageFailsOnlyThatItem() {
+        List<Object> failedInputs = new java.util.concurrent.CopyOnWriteArrayList<>();
+
+        ThumbnailPipeline.Result result = assertTimeoutPreemptively(Duration.ofSeconds(10), () ->
+                pipeline.run(items(50), i -> i, i -> {
+                    if (i % 10 == 0) {
+                        throw new OutOfMemoryError("Java heap space");
+                    }
+                    return i;
+                }, i -> i, (stage, input, error) -> failedInputs.add(input)));
+
+        assertThat(result.failed()).isEqualTo(5);
+        assertThat(result.completed()).isEqualTo(45);
+        assertThat(failedInputs).containsExactlyInAnyOrder(0, 10, 20, 30, 40);
+    }
+
+    @Test
+    void runEndsWhenEveryWorkerOfAStageDies() {
+        // an error escaping the failure handler kills the worker itself
+        ThumbnailPipeline.Result result = assertTimeoutPreemptively(Duration.ofSeconds(10), () ->
+                pipeline.run(items(200), i -> i, i -> {
+                    throw new IllegalStateException("boom");
+                }, i -> i, (stage, input, error) -> {
+                    throw new StackOverflowError();
+                }));
+
+        assertThat(result.completed()).isZero();
+        assertThat(result.listed()).isLessThan(200);
+    }
+
+    @Test
+    void overlappingRunsAreEachCountedInTheQueueGauges() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ThumbnailPipeline.Stage<Integer, Integer> held = i -> {
+            release.await();
+            return i;
+        };
+        CompletableFuture<ThumbnailPipeline.Result> first =
+                CompletableFuture.supplyAsync(() -> pipeline.run(items(20), held, i -> i, i -> i));
+        CompletableFuture<ThumbnailPipeline.Result> second;
+        try {
+            awaitDownloadQueueDepth(2);
+            // the second run's resize workers wait behind the first's on the shared pool, so its queues fill too
+            second = CompletableFuture.supplyAsync(() -> pipeline.run(items(20), i -> i, i -> i, i -> i));
+            awaitDownloadQueueDepth(4);
+        } finally {
+            release.countDown();
+        }
+
+        assertThat(first.get(10, TimeUnit.SECONDS).completed()).isEqualTo(20);
+        assertThat(second.get(10, TimeUnit.SECONDS).completed()).isEqualTo(20);
+        assertThat(queueDepth("download")).isZero();
+    }
+
+    private void awaitDownloadQueueDepth(int depth) {
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            while (queueDepth("download") < depth) {
+                Thread.sleep(10);
+            }
+        });
+    }
+
+    private double queueDepth(String stage) {
+        return meterRegistry.get("thumbnail.pipeline.queue").tag("stage", stage).gauge().value();
+    }
+
+    private static List<Integer> items(int count) {
+        return IntStream.range(0, count).boxed().toList();
+    }
+}
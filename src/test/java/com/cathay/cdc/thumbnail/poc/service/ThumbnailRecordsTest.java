@@ -0,0 +1,54 @@
+package com.cathay.cdc.thumbnail.poc.service;
+
+import com.cathay.cdc.thumbnail.poc.storage.StoredBlob;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ThumbnailRecordsTest {
+
+    private static final String SIGNATURE = "default@0123456789ab";
+
+    @Test
+    void markedOnlyForTheRenderedGeneration() {
+        Map<String, String> marks = Map.of(
+                ThumbnailRecords.GENERATED, "true",
+                ThumbnailRecords.GENERATION, "7",
+                ThumbnailRecords.RENDITIONS, SIGNATURE);
+
+        assertThat(ThumbnailRecords.isMarked(original(7, "crc", marks))).isTrue();
+        assertThat(ThumbnailRecords.isMarked(original(8, "crc", marks))).isFalse();
+        assertThat(ThumbnailRecords.isMarkedCurrent(original(7, "crc", marks), SIGNATURE)).isTrue();
+        assertThat(ThumbnailRecords.isMarkedCurrent(original(7, "crc", marks), "default@ffffffffffff")).isFalse();
+    }
+
+    @Test
+    void renditionIsCurrentForIdenticalContent() {
+        Map<String, String> rendition = ThumbnailRecords.renditionMetadata(original(7, "crc", Map.of()), SIGNATURE);
+
+        // a re-upload of the same bytes has a new generation but the same CRC32C
+        assertThat(ThumbnailRecords.isCurrentFor(rendition, original(9, "crc", Map.of()), SIGNATURE)).isTrue();
+        assertThat(ThumbnailRecords.isCurrentFor(rendition, original(7, "other", Map.of()), SIGNATURE)).isFalse();
+        assertThat(ThumbnailRecords.isCurrentFor(rendition, original(7, "crc", Map.of()), "default@ffffffffffff"))
+                .isFalse();
+        assertThat(ThumbnailRecords.isCurrentFor(null, original(7, "crc", Map.of()), SIGNATURE)).isFalse();
+    }
+
+    @Test
+    void withoutChecksumsTheGenerationDecides() {
+        Map<String, String> rendition = new HashMap<>(
+                ThumbnailRecords.renditionMetadata(original(7, null, Map.of()), SIGNATURE));
+        rendition.remove(ThumbnailRecords.SOURCE_CRC32C);
+
+        assertThat(ThumbnailRecords.isCurrentFor(rendition, original(7, null, Map.of()), SIGNATURE)).isTrue();
+        assertThat(ThumbnailRecords.isCurrentFor(rendition, original(8, null, Map.of()), SIGNATURE)).isFalse();
+    }
+
+    private static StoredBlob original(long generation, String crc32c, Map<String, String> metadata) {
+        return new StoredBlob("bucket", "photo.jpg", "image/jpeg", 10, generation, 1, 0L, 0L,
+                crc32c, null, null, metadata);
+    }
+}
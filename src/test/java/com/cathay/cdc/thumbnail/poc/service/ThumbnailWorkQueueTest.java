@@ -0,0 +1,102 @@
+package com.cathay.cdc.thumbnail.poc.service;
+
+import com.cathay.cdc.thumbnail.poc.entity.ThumbnailWorkItem;
+import com.cathay.cdc.thumbnail.poc.repository.JobLockRepository;
+import com.cathay.cdc.thumbnail.poc.repository.ThumbnailWorkItemRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ThumbnailWorkQueueTest {
+
+    private final ThumbnailWorkItemRepository repository = mock(ThumbnailWorkItemRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ThumbnailWorkQueue queue =
+            new ThumbnailWorkQueue(repository, mock(JobLockRepository.class), meterRegistry);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(queue, "owner", "test-owner");
+        ReflectionTestUtils.setField(queue, "maxAttempts", 3);
+        ReflectionTestUtils.setField(queue, "backoffInitial", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(queue, "backoffMax", Duration.ofMinutes(5));
+    }
+
+    @Test
+    void backoffDoublesPerAttemptUpToTheMaximum() {
+        assertThat(queue.backoffAfter(0)).isEqualTo(Duration.ofSeconds(30));
+        assertThat(queue.backoffAfter(1)).isEqualTo(Duration.ofSeconds(30));
+        assertThat(queue.backoffAfter(2)).isEqualTo(Duration.ofSeconds(60));
+        assertThat(queue.backoffAfter(4)).isEqualTo(Duration.ofSeconds(240));
+        assertThat(queue.backoffAfter(5)).isEqualTo(Duration.ofMinutes(5));
+        assertThat(queue.backoffAfter(Integer.MAX_VALUE)).isEqualTo(Duration.ofMinutes(5));
+    }
+
+    @Test
+    void failureRecordsTheErrorWithTheBackoffForItsAttempt() {
+        when(repository.fail(anyLong(), anyString(), anyString(), anyLong(), anyInt())).thenReturn(1);
+
+        queue.fail(item(7L, 2), new IOException("read timed out"));
+
+        verify(repository).fail(7L, "test-owner", "IOException: read timed out", 60, 3);
+        assertThat(meterRegistry.find("thumbnail.work.quarantined").counter()).isNull();
+    }
+
+    @Test
+    void lastFailedAttemptCountsAsQuarantined() {
+        when(repository.fail(anyLong(), anyString(), anyString(), anyLong(), anyInt())).thenReturn(1);
+
+        queue.fail(item(7L, 3), new IllegalStateException("x".repeat(2000)));
+
+        verify(repository).fail(eq(7L), eq("test-owner"),
+                eq(("IllegalStateException: " + "x".repeat(2000)).substring(0, 1000)), eq(120L), eq(3));
+        assertThat(meterRegistry.counter("thumbnail.work.quarantined").count()).isEqualTo(1);
+    }
+
+    @Test
+    void lostLeaseIsNotCountedAsQuarantined() {
+        when(repository.fail(anyLong(), anyString(), anyString(), anyLong(), anyInt())).thenReturn(0);
+
+        queue.fail(item(7L, 3), new IOException("gone"));
+
+        assertThat(meterRegistry.find("thumbnail.work.quarantined").counter()).isNull();
+    }
+
+    @Test
+    void deferralIsNotRecordedAsAFailure() {
+        when(repository.defer(anyLong(), anyString(), anyLong())).thenReturn(1);
+
+        for (int i = 0; i < 5; i++) {
+            queue.defer(item(7L, 3), Duration.ofMinutes(1));
+        }
+
+        verify(repository, times(5)).defer(7L, "test-owner", 60);
+        verify(repository, never()).fail(anyLong(), anyString(), anyString(), anyLong(), anyInt());
+        assertThat(meterRegistry.find("thumbnail.work.quarantined").counter()).isNull();
+    }
+
+    private static ThumbnailWorkItem item(long id, int attempts) {
+        ThumbnailWorkItem item = new ThumbnailWorkItem();
+        item.setId(id);
+        item.setBucket("bucket");
+        item.setName("a.jpg");
+        item.setGeneration(1);
+        item.setAttempts(attempts);
+        return item;
+    }
+}
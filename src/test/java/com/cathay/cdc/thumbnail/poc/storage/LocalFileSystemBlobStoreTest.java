@@ -0,0 +1,96 @@
+package com.cathay.cdc.thumbnail.poc.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocalFileSystemBlobStoreTest {
+
+    @TempDir
+    Path root;
+
+    private LocalFileSystemBlobStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = open();
+    }
+
+    @Test
+    void pagesThroughNamesInOrder() {
+        for (String name : List.of("b.jpg", "a/2.jpg", "a-c.jpg", "a/1.jpg", "c.jpg")) {
+            put(name);
+        }
+
+        BlobPage first = store.list("bucket", null, null, 2);
+        BlobPage second = store.list("bucket", null, first.nextPageToken(), 2);
+        BlobPage third = store.list("bucket", null, second.nextPageToken(), 2);
+
+        assertThat(names(first)).containsExactly("a-c.jpg", "a/1.jpg");
+        assertThat(names(second)).containsExactly("a/2.jpg", "b.jpg");
+        assertThat(names(third)).containsExactly("c.jpg");
+        assertThat(third.nextPageToken()).isNull();
+    }
+
+    @Test
+    void listsOnlyThePrefix() {
+        for (String name : List.of("a/1.jpg", "a/2.jpg", "b/1.jpg")) {
+            put(name);
+        }
+
+        assertThat(names(store.list("bucket", "a/", null, 10))).containsExactly("a/1.jpg", "a/2.jpg");
+        assertThat(names(store.list("bucket", "c/", null, 10))).isEmpty();
+    }
+
+    @Test
+    void indexIsRebuiltFromDiskOnStartup() {
+        put("x.jpg");
+        put("y.jpg");
+
+        LocalFileSystemBlobStore reopened = open();
+
+        assertThat(names(reopened.list("bucket", null, null, 10))).containsExactly("x.jpg", "y.jpg");
+    }
+
+    @Test
+    void updateMetadataReplacesAllKeys() {
+        StoredBlob blob = store.put("bucket", "m.jpg", "image/jpeg", bytes(), Map.of("keep", "1", "stale", "2"),
+                WriteCondition.NONE);
+
+        StoredBlob updated = store.updateMetadata(blob, Map.of("keep", "3", "new", "4"));
+
+        assertThat(updated.metadata()).isEqualTo(Map.of("keep", "3", "new", "4"));
+    }
+
+    private LocalFileSystemBlobStore open() {
+        LocalFileSystemBlobStore opened = new LocalFileSystemBlobStore(new LocalUrlSigner());
+        ReflectionTestUtils.setField(opened, "rootPath", root.toString());
+        ReflectionTestUtils.setField(opened, "latency", Duration.ZERO);
+        ReflectionTestUtils.invokeMethod(opened, "init");
+        return opened;
+    }
+
+    private void put(String name) {
+        store.put("bucket", name, "image/jpeg", bytes());
+    }
+
+    private static byte[] bytes() {
+        return "content".getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static List<String> names(BlobPage page) {
+        List<String> names = new ArrayList<>();
+        page.blobs().forEach(blob -> names.add(blob.name()));
+        return names;
+    }
+}